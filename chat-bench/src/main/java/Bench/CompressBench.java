@@ -0,0 +1,151 @@
+package Bench;
+
+import Protocol.BlockDeflater;
+import Protocol.BlockInflater;
+import Protocol.ChatMessage;
+import Protocol.Compression;
+import Protocol.MessageType;
+import Protocol.ProtocolException;
+import Protocol.TextEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The compression layer on a stream of varied text frames: one block per writer batch of eight,
+ * one block per frame, and inflating batch blocks back. {@code main} prints the wire size as a
+ * fraction of the frame bytes instead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressBench {
+    private static final int FRAMES = 1024;
+    private static final int BATCH = 8;
+    private static final String[] NICKS = {"alice", "bob_42", "carol", "dave_ops", "erin"};
+    private static final String[] WORDS = {"the", "build", "is", "green", "again", "shipping", "release",
+            "notes", "now", "can", "someone", "review", "my", "PR", "deploy", "at", "five", "thanks", "lunch", "?"};
+
+    private ByteBuffer[] frames;
+    private ByteBuffer out;
+    private BlockDeflater batched;
+    private BlockDeflater single;
+    // A pre-compressed stream to inflate; the inflater restarts whenever the stream does.
+    private ByteBuffer in;
+    private int[] ends;
+    private ByteBuffer plain;
+    private BlockInflater inflater;
+    private int next;
+
+    public static void main(String[] args) {
+        ByteBuffer[] frames = frames();
+        int[][] runs = {{1, Integer.MAX_VALUE}, {1, Compression.DEFAULT_THRESHOLD}, {BATCH, Compression.DEFAULT_THRESHOLD}};
+        for (int[] run : runs) {
+            int batch = run[0];
+            BlockDeflater d = Compression.DEFLATE.newDeflater(run[1]);
+            ByteBuffer out = ByteBuffer.allocateDirect(BlockDeflater.maxBlockSize(BlockDeflater.MAX_PLAIN));
+            for (int i = 0; i < FRAMES; i += batch) {
+                out.clear();
+                d.write(rewind(frames, i, batch), i, batch, out);
+            }
+            System.out.printf(Locale.ROOT, "batch of %d, %s: wire/frame bytes = %.2f%n", batch,
+                    run[1] == Integer.MAX_VALUE ? "raw" : "threshold " + run[1], (double) d.wireBytes() / d.plainBytes());
+        }
+    }
+
+    @Setup
+    public void setup() {
+        frames = frames();
+        out = ByteBuffer.allocateDirect(BlockDeflater.maxBlockSize(BlockDeflater.MAX_PLAIN));
+        batched = Compression.DEFLATE.newDeflater(Compression.DEFAULT_THRESHOLD);
+        single = Compression.DEFLATE.newDeflater(0);
+
+        ByteBuffer stream = ByteBuffer.allocateDirect(FRAMES * 128);
+        BlockDeflater d = Compression.DEFLATE.newDeflater(0);
+        ends = new int[FRAMES / BATCH];
+        for (int b = 0; b < ends.length; b++) {
+            d.write(rewind(frames, b * BATCH, BATCH), b * BATCH, BATCH, stream);
+            ends[b] = stream.position();
+        }
+        d.end();
+        in = stream.duplicate();
+        plain = ByteBuffer.allocateDirect(64 * 1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        batched.end();
+        single.end();
+        if (inflater != null) inflater.end();
+    }
+
+    @Benchmark
+    public int batch8() {
+        int from = (next++ & (FRAMES / BATCH - 1)) * BATCH;
+        out.clear();
+        batched.write(rewind(frames, from, BATCH), from, BATCH, out);
+        return out.position();
+    }
+
+    @Benchmark
+    public int perFrame() {
+        int at = next++ & (FRAMES - 1);
+        out.clear();
+        single.write(rewind(frames, at, 1), at, 1, out);
+        return out.position();
+    }
+
+    @Benchmark
+    public int inflateBatch8() throws ProtocolException {
+        int b = next++ & (ends.length - 1);
+        if (b == 0) {
+            if (inflater != null) inflater.end();
+            inflater = Compression.DEFLATE.newInflater();
+        }
+        in.limit(ends[b]).position(b == 0 ? 0 : ends[b - 1]);
+        plain.clear();
+        inflater.read(in, plain);
+        return plain.position();
+    }
+
+    private static ByteBuffer[] frames() {
+        TextEncoder encoder = new TextEncoder();
+        ByteBuffer[] frames = new ByteBuffer[FRAMES];
+        long seed = 42;
+        for (int i = 0; i < FRAMES; i++) {
+            StringBuilder body = new StringBuilder();
+            int words = 4 + (int) (seed >>> 60);
+            for (int w = 0; w < words; w++) {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                if (w > 0) body.append(' ');
+                body.append(WORDS[(int) ((seed >>> 33) % WORDS.length)]);
+            }
+            ChatMessage m = new ChatMessage(MessageType.CHAT, NICKS[i % NICKS.length], 1_700_000_000_000L + i * 1371L, body.toString());
+            ByteBuffer b = ByteBuffer.allocateDirect(256);
+            encoder.encode(m, b);
+            frames[i] = b.flip();
+        }
+        return frames;
+    }
+
+    private static ByteBuffer[] rewind(ByteBuffer[] frames, int from, int n) {
+        for (int i = from; i < from + n; i++) frames[i].rewind();
+        return frames;
+    }
+}
@@ -0,0 +1,81 @@
+package Bench;
+
+import Protocol.Frame;
+import Protocol.LineDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inbound line decoding: the old {@code String.split("\t", 4)} + {@code Long.parseLong} path
+ * against {@link LineDecoder}, with and without materialising the body.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBench {
+    private static final int LINES = 256;
+
+    private final byte[][] lines = new byte[LINES][];
+    private final LineDecoder decoder = new LineDecoder();
+    private int next;
+
+    @Setup
+    public void setup() {
+        String[] nicks = {"alice", "bob", "carol_99", "dave", "Eve_the_Great", "mallory"};
+        for (int i = 0; i < LINES; i++) {
+            String line = "CHAT\t" + nicks[i % nicks.length] + "\t" + (1_700_000_000_000L + i * 37L)
+                    + "\thello there, this is message number " + i + " with a little more text";
+            lines[i] = line.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public void split(Blackhole bh) {
+        String[] t = new String(lines[next++ & (LINES - 1)], StandardCharsets.UTF_8).split("\t", 4);
+        long ts;
+        try {
+            ts = Long.parseLong(t[2]);
+        } catch (NumberFormatException e) {
+            ts = 0;
+        }
+        bh.consume(t[0]);
+        bh.consume(t[1]);
+        bh.consume(ts);
+        bh.consume(t[3]);
+    }
+
+    @Benchmark
+    public void lineDecoder(Blackhole bh) {
+        byte[] b = lines[next++ & (LINES - 1)];
+        Frame f = decoder.decode(b, b.length);
+        bh.consume(f.type());
+        bh.consume(f.from());
+        bh.consume(f.timestamp());
+        bh.consume(f.body());
+    }
+
+    @Benchmark
+    public void lineDecoderHeaderOnly(Blackhole bh) {
+        byte[] b = lines[next++ & (LINES - 1)];
+        Frame f = decoder.decode(b, b.length);
+        bh.consume(f.type());
+        bh.consume(f.from());
+        bh.consume(f.timestamp());
+    }
+}
@@ -0,0 +1,104 @@
+package Bench;
+
+import Protocol.BinaryEncoder;
+import Protocol.ChatMessage;
+import Protocol.FrameEncoder;
+import Protocol.MessageType;
+import Protocol.TextEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The writer path: encoding into the direct write buffer, and encode + write either one message
+ * per write (the old flush-per-line writer) or a batch of 64 per write. Writes go to a pipe
+ * drained by a background thread, so every write is a real syscall.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodeBench {
+    private static final int BATCH = 64;
+
+    private final ChatMessage m = new ChatMessage(MessageType.CHAT, "bench_user", 1_700_000_000_000L,
+            "a typical chat line of around sixty characters, give or take");
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+    private final FrameEncoder text = new TextEncoder();
+    private final FrameEncoder binary = new BinaryEncoder();
+    private Pipe pipe;
+
+    @Setup
+    public void setup() throws IOException {
+        pipe = Pipe.open();
+        Thread drain = new Thread(() -> {
+            ByteBuffer sink = ByteBuffer.allocateDirect(256 * 1024);
+            try {
+                while (pipe.source().read(sink.clear()) >= 0) {
+                    // discard
+                }
+            } catch (IOException ignored) {
+            }
+        }, "EncodeBench-drain");
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pipe.sink().close();
+    }
+
+    @Benchmark
+    public int encodeText() {
+        buf.clear();
+        text.encode(m, buf);
+        return buf.position();
+    }
+
+    @Benchmark
+    public int encodeBinary() {
+        buf.clear();
+        binary.encode(m, buf);
+        return buf.position();
+    }
+
+    @Benchmark
+    public long writePerMessage() throws IOException {
+        buf.clear();
+        text.encode(m, buf);
+        return writeAll();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long writeBatch64() throws IOException {
+        buf.clear();
+        for (int i = 0; i < BATCH; i++) text.encode(m, buf);
+        return writeAll();
+    }
+
+    private long writeAll() throws IOException {
+        buf.flip();
+        long n = 0;
+        while (buf.hasRemaining()) n += pipe.sink().write(buf);
+        return n;
+    }
+}
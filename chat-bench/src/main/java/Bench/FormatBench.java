@@ -0,0 +1,65 @@
+package Bench;
+
+import Client.LineComposer;
+import Client.TimestampCache;
+import Protocol.ChatMessage;
+import Protocol.MessageType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transcript line formatting: the original {@code DateTimeFormatter} + {@code String.format}
+ * path against {@link LineComposer} with its per-second {@link TimestampCache}. Messages arrive
+ * in a burst, roughly 20 per second of timestamps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormatBench {
+    private static final int MESSAGES = 1024;
+
+    private final ChatMessage[] msgs = new ChatMessage[MESSAGES];
+    private DateTimeFormatter timeFmt;
+    private LineComposer composer;
+    private int next;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < MESSAGES; i++) {
+            msgs[i] = new ChatMessage(MessageType.CHAT, "user" + (i % 7), 1_700_000_000_000L + i * 50L,
+                    "message body number " + i);
+        }
+        timeFmt = DateTimeFormatter.ofLocalizedTime(FormatStyle.MEDIUM).withZone(ZoneId.systemDefault());
+        composer = new LineComposer(TimestampCache.localizedMedium());
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        ChatMessage m = msgs[next++ & (MESSAGES - 1)];
+        String time = timeFmt.format(Instant.ofEpochMilli(m.timestamp()));
+        return String.format("%s  [%s] %s%n", time, m.from(), m.body());
+    }
+
+    @Benchmark
+    public String lineComposer() {
+        return composer.compose(msgs[next++ & (MESSAGES - 1)]);
+    }
+}
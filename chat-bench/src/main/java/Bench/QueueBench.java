@@ -0,0 +1,232 @@
+package Bench;
+
+import Client.BoundedRing;
+import Client.Histogram;
+import Client.WaitStrategy;
+import Protocol.ChatMessage;
+import Protocol.MessageType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The outbound queue: {@link LinkedBlockingQueue} as the old {@code sendQ} against the
+ * {@link BoundedRing} behind the outbox. The single-threaded benchmarks measure offer/poll and
+ * offer + {@code drainTo} batches; {@code handoff} runs a producer against a consumer thread
+ * under each {@link WaitStrategy}, so its time per operation is the sustainable message rate.
+ * <p>
+ * JMH cannot pace a producer, so {@code main} covers the remaining question: a producer paced at
+ * {@link #PACED_RATE} messages per second, reporting hand-off latency and the consumer's CPU use.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueueBench {
+    private static final int PACED_RATE = 1_000_000;
+    private static final int PACED_SECONDS = 3;
+    private static final int CAPACITY = 1024;
+    private static final int BATCH = 64;
+
+    private final ChatMessage m = new ChatMessage(MessageType.CHAT, "bench", 1_700_000_000_000L, "hello");
+    private final LinkedBlockingQueue<ChatMessage> q = new LinkedBlockingQueue<>(200);
+    private final BoundedRing<ChatMessage> ring = new BoundedRing<>(200);
+    private final ArrayList<ChatMessage> batch = new ArrayList<>(BATCH);
+
+    @Benchmark
+    public ChatMessage linkedBlockingOfferPoll() {
+        q.offer(m);
+        return q.poll();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int linkedBlockingDrainTo64() {
+        for (int i = 0; i < BATCH; i++) q.offer(m);
+        batch.clear();
+        return q.drainTo(batch, BATCH);
+    }
+
+    @Benchmark
+    public ChatMessage boundedRingOfferPoll() {
+        ring.offer(m);
+        return ring.poll();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int boundedRingDrainTo64() {
+        for (int i = 0; i < BATCH; i++) ring.offer(m);
+        batch.clear();
+        return ring.drainTo(batch, BATCH);
+    }
+
+    /** One queue shared by the producer and consumer of a {@code handoff} group. */
+    @State(Scope.Group)
+    public static class Handoff {
+        @Param({"linked-blocking", "park", "spin-yield", "busy-spin"})
+        public String queue;
+
+        final ChatMessage m = new ChatMessage(MessageType.CHAT, "bench", 1_700_000_000_000L, "hello");
+        Channel channel;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            channel = queue.equals("linked-blocking") ? new Blocking() : new Ring(WaitStrategy.fromName(queue));
+        }
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public boolean produce(Handoff h, Control control) {
+        while (!h.channel.offer(h.m)) {
+            if (control.stopMeasurement) return false;
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public ChatMessage consume(Handoff h, Control control) {
+        return h.channel.take(() -> control.stopMeasurement);
+    }
+
+    interface Channel {
+        boolean offer(ChatMessage m);
+
+        /** Blocks or spins per the channel's strategy; null only once {@code stop} is true. */
+        ChatMessage take(BooleanSupplier stop);
+    }
+
+    private static final class Blocking implements Channel {
+        private final LinkedBlockingQueue<ChatMessage> q = new LinkedBlockingQueue<>(CAPACITY);
+
+        @Override
+        public boolean offer(ChatMessage m) {
+            return q.offer(m);
+        }
+
+        @Override
+        public ChatMessage take(BooleanSupplier stop) {
+            try {
+                while (!stop.getAsBoolean()) {
+                    ChatMessage m = q.poll(10, TimeUnit.MILLISECONDS);
+                    if (m != null) return m;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+    }
+
+    private static final class Ring implements Channel {
+        private final BoundedRing<ChatMessage> ring = new BoundedRing<>(CAPACITY);
+        private final WaitStrategy wait;
+        private volatile Thread consumer;
+        private volatile boolean parked;
+
+        Ring(WaitStrategy wait) {
+            this.wait = wait;
+        }
+
+        @Override
+        public boolean offer(ChatMessage m) {
+            if (!ring.offer(m)) return false;
+            if (parked) LockSupport.unpark(consumer);
+            return true;
+        }
+
+        @Override
+        public ChatMessage take(BooleanSupplier stop) {
+            consumer = Thread.currentThread();
+            int idle = 0;
+            while (!stop.getAsBoolean()) {
+                ChatMessage m = ring.poll();
+                if (m != null) return m;
+                if (wait.idle(++idle)) continue;
+                parked = true;
+                if (ring.isEmpty()) LockSupport.parkNanos(10_000_000);
+                parked = false;
+            }
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        if (cpus < 3) System.out.println("note: " + cpus + " CPU(s); the paced runs need spare cores for a spinning producer and consumer");
+        paced("linkedBlocking.take", new Blocking());
+        for (WaitStrategy w : WaitStrategy.values()) paced("boundedRing." + w.name().toLowerCase(Locale.ROOT), new Ring(w));
+    }
+
+    private static void paced(String name, Channel channel) throws InterruptedException {
+        int n = 4096;
+        ChatMessage[] msgs = new ChatMessage[n];
+        for (int i = 0; i < n; i++) msgs[i] = new ChatMessage(MessageType.CHAT, "bench", 0, "hello", i);
+        long[] sentAt = new long[n];
+        Histogram latency = new Histogram();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long[] consumerCpu = new long[1];
+        AtomicBoolean stopped = new AtomicBoolean();
+
+        Thread consumer = new Thread(() -> {
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            ChatMessage m;
+            while ((m = channel.take(stopped::get)) != null) {
+                latency.record(System.nanoTime() - sentAt[(int) m.seq()]);
+            }
+            consumerCpu[0] = threads.getCurrentThreadCpuTime() - cpuStart;
+        }, "QueueBench-consumer");
+        consumer.start();
+
+        long interval = 1_000_000_000L / PACED_RATE;
+        long total = (long) PACED_RATE * PACED_SECONDS;
+        long start = System.nanoTime();
+        long rejected = 0;
+        for (long i = 0; i < total; i++) {
+            long due = start + i * interval;
+            while (System.nanoTime() < due) Thread.onSpinWait();
+            int slot = (int) (i & (n - 1));
+            sentAt[slot] = System.nanoTime();
+            if (!channel.offer(msgs[slot])) rejected++;
+        }
+        long elapsed = System.nanoTime() - start;
+        stopped.set(true);
+        consumer.join();
+
+        System.out.printf(Locale.ROOT,
+                "%-32s %8.0f msg/s  rejected=%-7d hand-off us p50=%.1f p99=%.1f p99.9=%.1f max=%.1f  consumer cpu=%.0f%%%n",
+                name, total * 1e9 / elapsed, rejected, latency.percentile(50) / 1e3, latency.percentile(99) / 1e3,
+                latency.percentile(99.9) / 1e3, latency.max() / 1e3, 100.0 * consumerCpu[0] / elapsed);
+    }
+}
@@ -0,0 +1,137 @@
+package Bench;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks under JMH with its GC profiler and compares each score and B/op against the
+ * checked-in {@code chat-bench/baselines.txt}. Exits non-zero if any result regresses by more
+ * than {@link #TOLERANCE}; {@code --update} rewrites the baselines from this run instead. Other
+ * arguments go to JMH, such as {@code -wi 2 -i 3} for a quicker run or a benchmark pattern;
+ * without a pattern everything but {@link TlsBench} and the {@link QueueBench} hand-off runs.
+ * The hand-off mostly measures the scheduler, so it does not carry from one machine to another;
+ * run it by name to compare wait strategies on the machine at hand.
+ *
+ * <pre>java -jar chat-bench/target/benchmarks.jar [--update] [--baselines file] [JMH options]</pre>
+ */
+public final class RunAll {
+    private static final double TOLERANCE = 0.25;
+    // Allocation below this is noise from the harness itself, not the code under test.
+    private static final double ALLOC_FLOOR = 8;
+    // Likewise a few nanoseconds on a very short op is jitter, however large as a percentage.
+    private static final double TIME_FLOOR_NS = 5;
+    private static final String DEFAULT_SET = "Bench\\.(Compress|Decode|Encode|Format|Queue|Sanitize)Bench\\.";
+    private static final String NOT_DEFAULT = "Bench\\.QueueBench\\.handoff";
+
+    private record Baseline(double score, String unit, double bytesPerOp) {}
+
+    public static void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+        boolean update = false;
+        Path baselines = Path.of("chat-bench", "baselines.txt");
+        List<String> rest = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--update" -> update = true;
+                case "--baselines" -> baselines = Path.of(args[++i]);
+                default -> rest.add(args[i]);
+            }
+        }
+        CommandLineOptions jmh = new CommandLineOptions(rest.toArray(String[]::new));
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(jmh).addProfiler(GCProfiler.class);
+        if (jmh.getIncludes().isEmpty()) options.include(DEFAULT_SET).exclude(NOT_DEFAULT);
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        if (update) {
+            List<String> lines = new ArrayList<>();
+            lines.add("# name score unit bytesPerOp -- regenerate with: java -jar chat-bench/target/benchmarks.jar --update");
+            lines.add(String.format(Locale.ROOT, "# recorded with %d CPUs, %s %s, %s %s", Runtime.getRuntime().availableProcessors(),
+                    System.getProperty("java.vm.name"), System.getProperty("java.version"),
+                    System.getProperty("os.name"), System.getProperty("os.arch")));
+            for (RunResult r : results) {
+                Result<?> score = r.getPrimaryResult();
+                lines.add(String.format(Locale.ROOT, "%s %.2f %s %.1f", name(r.getParams()), score.getScore(),
+                        score.getScoreUnit(), bytesPerOp(r)));
+            }
+            Files.write(baselines, lines);
+            System.out.println("Wrote " + results.size() + " baselines to " + baselines);
+            return;
+        }
+
+        Map<String, Baseline> base = read(baselines);
+        int regressions = 0;
+        System.out.println();
+        for (RunResult r : results) {
+            String name = name(r.getParams());
+            Baseline b = base.get(name);
+            Result<?> score = r.getPrimaryResult();
+            if (b == null || !b.unit.equals(score.getScoreUnit())) {
+                System.out.printf(Locale.ROOT, "%-48s no baseline%n", name);
+                continue;
+            }
+            double now = score.getScore();
+            double bytes = bytesPerOp(r);
+            boolean slower = r.getParams().getMode() == Mode.Throughput
+                    ? now < b.score * (1 - TOLERANCE)
+                    : now > b.score * (1 + TOLERANCE) && !(b.unit.equals("ns/op") && now - b.score <= TIME_FLOOR_NS);
+            boolean heavier = bytes > ALLOC_FLOOR && bytes > b.bytesPerOp * (1 + TOLERANCE);
+            if (slower || heavier) regressions++;
+            System.out.printf(Locale.ROOT, "%-48s %+7.1f%% %-6s %+7.1f%% alloc  %s%n", name, change(now, b.score),
+                    b.unit, bytes <= ALLOC_FLOOR ? 0 : change(bytes, b.bytesPerOp), slower || heavier ? "REGRESSION" : "ok");
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) beyond " + (int) (TOLERANCE * 100) + "%.");
+            System.exit(1);
+        }
+    }
+
+    /** {@code Class.method}, then any parameters as {@code :key=value,...}. */
+    private static String name(BenchmarkParams params) {
+        StringBuilder sb = new StringBuilder(params.getBenchmark().substring("Bench.".length()));
+        char sep = ':';
+        for (String key : params.getParamsKeys()) {
+            sb.append(sep).append(key).append('=').append(params.getParam(key));
+            sep = ',';
+        }
+        return sb.toString();
+    }
+
+    private static double bytesPerOp(RunResult r) {
+        Result<?> alloc = r.getSecondaryResults().get("gc.alloc.rate.norm");
+        return alloc == null || Double.isNaN(alloc.getScore()) ? 0 : alloc.getScore();
+    }
+
+    private static double change(double now, double before) {
+        return before == 0 ? (now == 0 ? 0 : 100) : (now - before) / before * 100;
+    }
+
+    private static Map<String, Baseline> read(Path file) throws IOException {
+        Map<String, Baseline> map = new LinkedHashMap<>();
+        if (!Files.exists(file)) return map;
+        for (String line : Files.readAllLines(file)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] t = line.split("\\s+");
+            map.put(t[0], new Baseline(Double.parseDouble(t[1]), t[2], Double.parseDouble(t[3])));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,49 @@
+package Bench;
+
+import Protocol.ChatMessage;
+import Protocol.Framing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** {@link ChatMessage#sanitize} on typical input, input needing replacement, and oversized pastes. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SanitizeBench {
+    private String plain = "  hey everyone, the build is green again - shipping the release notes now  ";
+    private String dirty = "line one\tcolumn\r\nline two\tcolumn\nline three";
+    private String paste = "lorem ipsum dolor sit amet ".repeat(60);
+
+    @Benchmark
+    public String plain() {
+        return ChatMessage.sanitize(plain, Framing.TEXT);
+    }
+
+    @Benchmark
+    public String controlChars() {
+        return ChatMessage.sanitize(dirty, Framing.TEXT);
+    }
+
+    @Benchmark
+    public String oversizedPaste() {
+        return ChatMessage.sanitize(paste, Framing.TEXT);
+    }
+
+    @Benchmark
+    public String binaryFraming() {
+        return ChatMessage.sanitize(dirty, Framing.BINARY);
+    }
+}
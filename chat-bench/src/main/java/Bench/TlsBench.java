@@ -0,0 +1,177 @@
+package Bench;
+
+import Protocol.Tls;
+import Protocol.TlsChannel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TLS against plaintext over loopback, with a self-signed certificate generated into a temp
+ * directory by {@link Tls#selfSigned}. {@code connect} samples connection setup (connect,
+ * handshake and one round trip) for plain TCP, a full TLS 1.3 handshake and a resumed one;
+ * {@code stream} is 16 KB writes per second over one open connection. Client and server share
+ * the machine, so both ends are in the numbers.
+ * <p>
+ * Not part of {@link RunAll}'s default set: it needs {@code keytool} and sockets, and its timings
+ * say more about the machine than about a change.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TlsBench {
+    private static final int CHUNK = 16 * 1024;
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    /** A plain and a TLS echo server, and the client context that resumes sessions with the latter. */
+    @State(Scope.Benchmark)
+    public static class Servers {
+        Path keystore;
+        Tls shared;
+        ServerSocketChannel plain;
+        ServerSocketChannel secure;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            keystore = Tls.selfSigned(Files.createTempDirectory("chat-tls-bench"), PASSWORD);
+            shared = Tls.client(keystore, PASSWORD);
+            plain = listen(null);
+            secure = listen(Tls.server(keystore, PASSWORD));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            plain.close();
+            secure.close();
+        }
+
+        int port(boolean tls) throws IOException {
+            return ((InetSocketAddress) (tls ? secure : plain).getLocalAddress()).getPort();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Connect {
+        @Param({"plain", "full", "resumed"})
+        public String mode;
+    }
+
+    @State(Scope.Thread)
+    public static class Stream {
+        @Param({"plain", "tls"})
+        public String transport;
+
+        final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK);
+        ByteChannel channel;
+
+        @Setup(Level.Iteration)
+        public void open(Servers servers) throws IOException {
+            while (chunk.hasRemaining()) chunk.put((byte) ('a' + chunk.position() % 26));
+            boolean tls = transport.equals("tls");
+            int port = servers.port(tls);
+            SocketChannel ch = connectTo(port);
+            channel = tls ? servers.shared.open(ch, "127.0.0.1", port) : ch;
+            if (channel instanceof TlsChannel t) t.handshake();
+            channel.write(ByteBuffer.wrap(new byte[] {'s'}));
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int connect(Servers servers, Connect c) throws IOException {
+        boolean plain = c.mode.equals("plain");
+        // A fresh client context has an empty session cache, so nothing can be resumed.
+        Tls tls = c.mode.equals("full") ? Tls.client(servers.keystore, PASSWORD) : servers.shared;
+        int port = servers.port(!plain);
+        ByteBuffer one = ByteBuffer.allocate(1);
+        SocketChannel ch = connectTo(port);
+        try (ByteChannel channel = plain ? ch : tls.open(ch, "127.0.0.1", port)) {
+            if (channel instanceof TlsChannel t) t.handshake();
+            channel.write(ByteBuffer.wrap(new byte[] {'c'}));
+            while (one.hasRemaining()) {
+                if (channel.read(one) < 0) throw new IOException("Server closed the connection.");
+            }
+        }
+        return one.get(0);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int stream(Stream s) throws IOException {
+        s.chunk.clear();
+        int n = 0;
+        while (s.chunk.hasRemaining()) n += s.channel.write(s.chunk);
+        return n;
+    }
+
+    // As in the chat stack: without it, the last flight of a handshake waits out a delayed ACK.
+    private static SocketChannel connectTo(int port) throws IOException {
+        SocketChannel ch = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+        ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        return ch;
+    }
+
+    private static ServerSocketChannel listen(Tls tls) throws IOException {
+        ServerSocketChannel listener = ServerSocketChannel.open();
+        listener.bind(new InetSocketAddress("127.0.0.1", 0));
+        Thread.ofPlatform().daemon().name("TlsBenchAccept").start(() -> {
+            while (listener.isOpen()) {
+                try {
+                    SocketChannel ch = listener.accept();
+                    ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    Thread.ofVirtual().start(() -> serve(ch, tls));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        return listener;
+    }
+
+    /** The first byte asks for an echo ({@code c}) or a stream ({@code s}), read until the client closes. */
+    private static void serve(SocketChannel ch, Tls tls) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+        try (ByteChannel c = tls == null ? ch : tls.open(ch)) {
+            if (c instanceof TlsChannel t) t.handshake();
+            buf.limit(1);
+            if (c.read(buf) < 1) return;
+            if (buf.get(0) == 'c') {
+                c.write(ByteBuffer.wrap(new byte[] {'c'}));
+                return;
+            }
+            while (c.read(buf.clear()) >= 0) {
+                // discard
+            }
+        } catch (IOException ignored) {
+        }
+    }
+}
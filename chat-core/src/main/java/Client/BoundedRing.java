@@ -0,0 +1,101 @@
+package Client;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue over a preallocated ring of slots (Vyukov's design). Each slot has a
+ * sequence number that tells producers when it is free and consumers when it is full, so
+ * {@link #offer} and {@link #poll} are a CAS and two ordered stores with no locks or per-element
+ * allocation. Any number of threads may offer; polls may also come from several threads, which
+ * lets {@link OverflowPolicy#DROP_OLDEST} evict from the producer side while the event loop drains.
+ */
+public final class BoundedRing<E> {
+    private final int capacity;
+    private final int length;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    public BoundedRing(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        this.capacity = capacity;
+        // With one slot, "full for lap t" and "free for lap t + 1" are the same sequence number,
+        // so a single-element ring runs on two slots and bounds itself on head instead.
+        this.length = Math.max(2, capacity);
+        this.slots = new AtomicReferenceArray<>(length);
+        this.sequences = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) sequences.setPlain(i, i);
+    }
+
+    public boolean offer(E e) {
+        long t = tail.get();
+        while (true) {
+            int i = (int) (t % length);
+            long lag = sequences.getAcquire(i) - t;
+            if (lag == 0) {
+                if (length != capacity && t - head.get() >= capacity) return false;
+                if (tail.compareAndSet(t, t + 1)) {
+                    slots.setPlain(i, e);
+                    sequences.setRelease(i, t + 1);
+                    return true;
+                }
+                t = tail.get();
+            } else if (lag < 0) {
+                // The slot still holds the element from one lap ago: full.
+                return false;
+            } else {
+                t = tail.get();
+            }
+        }
+    }
+
+    public E poll() {
+        long h = head.get();
+        while (true) {
+            int i = (int) (h % length);
+            long lag = sequences.getAcquire(i) - (h + 1);
+            if (lag == 0) {
+                if (head.compareAndSet(h, h + 1)) {
+                    E e = slots.getPlain(i);
+                    slots.setPlain(i, null);
+                    sequences.setRelease(i, h + length);
+                    return e;
+                }
+                h = head.get();
+            } else if (lag < 0) {
+                return null;
+            } else {
+                h = head.get();
+            }
+        }
+    }
+
+    public int drainTo(Collection<? super E> to, int max) {
+        int n = 0;
+        E e;
+        while (n < max && (e = poll()) != null) {
+            to.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    /** Approximate while producers or consumers are active. */
+    public int size() {
+        long h = head.get();
+        long t = tail.get();
+        return (int) Math.max(0, Math.min(capacity, t - h));
+    }
+
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
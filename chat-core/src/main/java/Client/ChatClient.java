@@ -0,0 +1,181 @@
+package Client;
+
+import Protocol.ChatMessage;
+import Protocol.Frame;
+import Protocol.Framing;
+import Protocol.MessageType;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * A chat connection for applications: a {@link ReconnectSupervisor} plus what every front end
+ * needs on top of it. Lines arrive as {@link ChatMessage}s through a {@link Listener}, a room stops
+ * delivering once left, and with {@link Journals} given every {@code CHAT}, {@code SYSTEM} and
+ * {@code ERROR} line is queued to be saved, in arrival order, before it is delivered. Nothing blocks: connecting and leaving
+ * return futures, sending says whether the line was queued. The Swing client is one consumer;
+ * bots and services embed it the same way, with no UI on the class path.
+ */
+public final class ChatClient {
+    /**
+     * Callbacks on the transport's threads, as with {@link SessionListener}: they never overlap
+     * for one client, and must hand work off instead of blocking. The one notice that history is
+     * no longer being saved comes from the journal writer instead.
+     */
+    public interface Listener {
+        void onMessage(ChatMessage m);
+
+        /** The connection dropped; the next attempt starts in {@code delayMillis}. */
+        default void onReconnecting(IOException cause, int attempt, long delayMillis) {
+        }
+
+        /** Reconnected; anything missed is replayed through {@link #onMessage} next. */
+        default void onReconnected() {
+        }
+
+        /** The connection has ended for good; {@code cause} is null for an orderly close. */
+        default void onClosed(IOException cause) {
+        }
+    }
+
+    private final ReconnectSupervisor supervisor;
+    private final Listener listener;
+    private final CompletableFuture<Void> closed = new CompletableFuture<>();
+    private final Consumer<IOException> journalFailed = this::journalFailed;
+    private volatile Journals journals;
+
+    /** {@code journals} may be null to save nothing. Call {@link #start()} to connect. */
+    public ChatClient(Transport transport, String host, int port, String nickname, SessionOptions options,
+                      Journals journals, Listener listener) {
+        this.listener = listener;
+        this.journals = journals;
+        this.supervisor = new ReconnectSupervisor(transport, host, port, nickname, options, new Relay());
+    }
+
+    /** Connects; rooms joined beforehand are joined in the handshake. Fails only for the first connect. */
+    public CompletableFuture<ChatClient> start() {
+        return supervisor.start().handle((s, err) -> {
+            if (err == null) return this;
+            Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+            closed.completeExceptionally(cause);
+            throw new CompletionException(cause);
+        });
+    }
+
+    public String nickname() {
+        return supervisor.nickname();
+    }
+
+    public Framing framing() {
+        return supervisor.framing();
+    }
+
+    public boolean isConnected() {
+        return supervisor.isConnected();
+    }
+
+    public boolean hasRooms() {
+        return supervisor.hasRooms();
+    }
+
+    public Set<String> rooms() {
+        return supervisor.rooms();
+    }
+
+    public boolean joinRoom(String room) {
+        return supervisor.joinRoom(room);
+    }
+
+    public boolean leaveRoom(String room) {
+        return supervisor.leaveRoom(room);
+    }
+
+    public RttStats.Snapshot rtt() {
+        return supervisor.rtt();
+    }
+
+    public int pending() {
+        return supervisor.pending();
+    }
+
+    public long dropped() {
+        return supervisor.dropped();
+    }
+
+    /**
+     * Queues {@code text} as a {@code CHAT} line in {@code channel}, sanitized for the current
+     * framing. False if the send queue refused it; a line with nothing left to send is not an error.
+     */
+    public boolean send(String channel, String text) {
+        String clean = ChatMessage.sanitize(text, supervisor.framing());
+        if (clean.isEmpty()) return true;
+        return supervisor.offer(new ChatMessage(MessageType.CHAT, supervisor.nickname(), System.currentTimeMillis(),
+                clean, 0, channel));
+    }
+
+    /** Sends {@code LEAVE} after anything queued; the future completes once the connection is closed. */
+    public CompletableFuture<Void> leave() {
+        journals = null;
+        supervisor.leave();
+        return closed;
+    }
+
+    /** Closes without waiting for queued lines. */
+    public CompletableFuture<Void> close() {
+        journals = null;
+        supervisor.close();
+        return closed;
+    }
+
+    /** Completes when the connection has ended for good, exceptionally if an error ended it. */
+    public CompletableFuture<Void> closed() {
+        return closed;
+    }
+
+    private void journal(ChatMessage m) {
+        Journals j = journals;
+        if (j == null || m.type() != MessageType.CHAT && m.type() != MessageType.SYSTEM && m.type() != MessageType.ERROR) {
+            return;
+        }
+        j.append(m, journalFailed);
+    }
+
+    // On the journal writer, or on the caller once the journals are closed.
+    private void journalFailed(IOException e) {
+        // Journals closed under a client that is leaving are not a failure worth reporting.
+        if (journals == null) return;
+        journals = null;
+        listener.onMessage(ChatMessage.notice("History is no longer being saved: " + e.getMessage()));
+    }
+
+    private final class Relay implements SessionListener {
+        @Override
+        public void onFrame(ChatSession session, Frame frame) {
+            // Stragglers for a room just left would reopen it.
+            if (!frame.channel().isEmpty() && !supervisor.rooms().contains(frame.channel())) return;
+            ChatMessage m = frame.toMessage();
+            journal(m);
+            listener.onMessage(m);
+        }
+
+        @Override
+        public void onClosed(ChatSession session, IOException cause) {
+            listener.onClosed(cause);
+            if (cause == null) closed.complete(null);
+            else closed.completeExceptionally(cause);
+        }
+
+        @Override
+        public void onReconnecting(IOException cause, int attempt, long delayMillis) {
+            listener.onReconnecting(cause, attempt, delayMillis);
+        }
+
+        @Override
+        public void onReconnected(ChatSession session) {
+            listener.onReconnected();
+        }
+    }
+}
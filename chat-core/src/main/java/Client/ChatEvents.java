@@ -0,0 +1,74 @@
+package Client;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight-recorder events for the client runtime, under the {@code Chat} category; the UI adds its
+ * own in the same category, so a recording puts network batches and EDT commits on one timeline.
+ * The per-batch events are created only to be thrown away when no recording wants them: callers
+ * check {@link Event#shouldCommit()} before filling in fields, and the JIT removes the rest. None
+ * record stack traces.
+ */
+final class ChatEvents {
+    private ChatEvents() {
+    }
+
+    @Name("chat.Handshake")
+    @Label("Chat Handshake")
+    @Category({"Chat", "Connection"})
+    @Description("From sending JOIN to the server's SYSTEM welcome, or until the session failed.")
+    @StackTrace(false)
+    static final class Handshake extends Event {
+        @Label("Nickname")
+        String nickname;
+        @Label("Remote Address")
+        String remote;
+        @Label("Framing")
+        String framing;
+        @Label("Compression")
+        String compression;
+        @Label("TLS")
+        boolean tls;
+        @Label("Outcome")
+        @Description("accepted, rejected: <reason>, or the error that ended the session")
+        String outcome;
+    }
+
+    @Name("chat.WriteBatch")
+    @Label("Chat Write")
+    @Category({"Chat", "Network"})
+    @Description("One socket write of encoded lines, compressed and encrypted as negotiated.")
+    @StackTrace(false)
+    static final class WriteBatch extends Event {
+        @Label("Lines")
+        @Description("Lines encoded since the last write that emptied the buffer")
+        int lines;
+        @Label("Bytes Written")
+        @DataAmount
+        int bytes;
+        @Label("Bytes Left")
+        @DataAmount
+        int left;
+        @Label("TLS")
+        boolean tls;
+    }
+
+    @Name("chat.ReadBatch")
+    @Label("Chat Decode")
+    @Category({"Chat", "Network"})
+    @Description("Decoding and dispatching the frames of one socket read.")
+    @StackTrace(false)
+    static final class ReadBatch extends Event {
+        @Label("Frames")
+        int frames;
+        @Label("Bytes Read")
+        @DataAmount
+        int bytes;
+    }
+}
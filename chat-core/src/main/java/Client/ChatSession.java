@@ -0,0 +1,482 @@
+package Client;
+
+import Protocol.BlockDeflater;
+import Protocol.Capabilities;
+import Protocol.ChatMessage;
+import Protocol.Compression;
+import Protocol.Frame;
+import Protocol.FrameEncoder;
+import Protocol.FrameReader;
+import Protocol.Framing;
+import Protocol.MessageType;
+import Protocol.TlsChannel;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One chat connection, driven by a {@link Transport}. Inbound frames are decoded in place from
+ * a direct buffer; outbound messages are queued by any thread, drained in batches of up to
+ * {@link SessionOptions#maxBatch()} by the session's writer and written with one socket write.
+ * The handshake starts in text framing and switches to binary if the server accepts it; once
+ * it accepts compression, batches are compressed with a dictionary that spans the connection.
+ * With {@link SessionOptions#tls()} set, all of it runs over TLS, set up before the handshake.
+ * <p>
+ * If {@code ping} was negotiated the writer slips a {@code PING} in ahead of the next batch every
+ * {@link SessionOptions#pingIntervalMillis()}; the echoed {@code PONG}s feed {@link #rtt()}. Any
+ * inbound bytes count as a sign of life, and a server silent for {@link #MISSED_PINGS} intervals
+ * is treated as dead: the session closes with a {@link SocketTimeoutException}, long before TCP
+ * keepalive would notice.
+ * <p>
+ * Outbound messages live in an {@link Outbox} that may outlive the session: a session that fails
+ * hands back the lines it drained but never encoded, so the next session sends them. With
+ * acknowledgements negotiated it also hands back lines written but never acknowledged, and at
+ * most {@link SessionOptions#maxInFlight()} lines are outstanding at once.
+ * <p>
+ * The reader side (decoding, handshake, listener callbacks) and the writer side (batching,
+ * encoding) may run on different threads; they meet only through volatile fields.
+ */
+public abstract class ChatSession {
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int MISSED_PINGS = 3;
+
+    private static final Metrics METRICS = Metrics.shared();
+    private static final LongAdder BYTES_IN = METRICS.counter("chat_client_read_bytes_total",
+            "Bytes read from servers, after TLS and before inflating.");
+    private static final LongAdder BYTES_OUT = METRICS.counter("chat_client_written_bytes_total",
+            "Bytes written to servers, after compressing and before TLS.");
+    private static final LongAdder FRAMES_IN = METRICS.counter("chat_client_frames_in_total", "Frames decoded.");
+    private static final LongAdder MESSAGES_OUT = METRICS.counter("chat_client_messages_out_total", "Lines encoded by writers.");
+    private static final Histogram BATCH = METRICS.histogram("chat_client_batch_messages", "Lines per drained batch.");
+    private static final Histogram WRITE = METRICS.timer("chat_client_write_seconds",
+            "Time per socket write, including TLS wrapping.");
+    private static final Histogram HANDSHAKE = METRICS.timer("chat_client_handshake_seconds",
+            "From opening the socket to the server's welcome.");
+    private static final Histogram RTT = METRICS.timer("chat_client_rtt_seconds", "PING round trips.");
+    private static final LongAdder OPENED = METRICS.counter("chat_client_sessions_opened_total", "Handshakes completed.");
+    private static final LongAdder FAILED = METRICS.counter("chat_client_sessions_failed_total",
+            "Sessions closed by an error, including failed handshakes.");
+
+    enum State { CONNECTING, HANDSHAKE, OPEN, CLOSED }
+
+    final SocketChannel channel;
+    final TlsChannel tls;
+    private final String nickname;
+    private final SessionListener listener;
+    private final Framing requestedFraming;
+    private final Compression requestedCompression;
+    private final Capabilities extraCapabilities;
+    final Outbox outbox;
+    final int maxBatch;
+    private final int maxInFlight;
+    final long lingerNanos;
+    private final long pingIntervalNanos;
+    // PING timestamps are relative to this, keeping them non-negative on the wire.
+    private final long startNanos = System.nanoTime();
+    private final RttStats rtt = new RttStats();
+    private final CompletableFuture<ChatSession> handshake = new CompletableFuture<>();
+    final FrameReader inbound = new FrameReader(ByteBuffer.allocateDirect(BUFFER_SIZE), Framing.TEXT.newDecoder());
+    private final ByteBuffer writeBuf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Writer side.
+    final ArrayList<ChatMessage> batch;
+    int batchIndex;
+    // Set by the reader before state turns OPEN, which publishes them to the writer.
+    private FrameEncoder encoder = Framing.TEXT.newEncoder();
+    private boolean acked;
+    private BlockDeflater deflater;
+    private ByteBuffer blockBuf;
+    private boolean pinging;
+    private long nextPing;
+    private boolean pingDue;
+    private int linesSinceWrite;
+    // Reader side.
+    private int lastRead;
+    // Begun by the writer before state turns HANDSHAKE, which publishes it to the reader.
+    private ChatEvents.Handshake handshakeEvent;
+    private volatile long lastHeard;
+    private volatile long ackedUpTo;
+    private volatile Framing framing = Framing.TEXT;
+    private volatile Capabilities accepted = Capabilities.none();
+    volatile State state = State.CONNECTING;
+    volatile boolean closeAfterFlush;
+
+    ChatSession(SocketChannel channel, TlsChannel tls, String nickname, SessionOptions options,
+                Capabilities extraCapabilities, Outbox outbox, SessionListener listener) {
+        this.channel = channel;
+        this.tls = tls;
+        this.nickname = nickname;
+        this.listener = listener;
+        this.requestedFraming = options.framing();
+        this.requestedCompression = options.compression();
+        this.extraCapabilities = extraCapabilities;
+        this.outbox = outbox;
+        this.maxBatch = options.maxBatch();
+        this.maxInFlight = options.maxInFlight();
+        this.lingerNanos = options.maxLingerMicros() * 1000;
+        this.pingIntervalNanos = options.pingIntervalMillis() * 1_000_000;
+        this.batch = new ArrayList<>(options.maxBatch());
+    }
+
+    public String nickname() {
+        return nickname;
+    }
+
+    /** Framing in use; {@link Framing#TEXT} until the server has accepted anything else. */
+    public Framing framing() {
+        return framing;
+    }
+
+    /** What the server accepted in {@code CAPS}; empty for a server that predates negotiation. */
+    public Capabilities accepted() {
+        return accepted;
+    }
+
+    /** Round trips of recent {@code PING}s; empty unless the server accepted {@code ping}. */
+    public RttStats rtt() {
+        return rtt;
+    }
+
+    public boolean isOpen() {
+        return state == State.OPEN && !closeAfterFlush;
+    }
+
+    /** Never blocks; false if the session is not open or the overflow policy refused {@code m}. */
+    public boolean offer(ChatMessage m) {
+        if (!isOpen()) return false;
+        boolean ok = outbox.offer(m);
+        if (ok) scheduleFlush();
+        return ok;
+    }
+
+    /** Queues {@code LEAVE} behind any pending lines and closes once they are written. */
+    public void leave() {
+        if (!isOpen()) {
+            close();
+            return;
+        }
+        if (!outbox.offer(new ChatMessage(MessageType.LEAVE, nickname, System.currentTimeMillis(), ""))) {
+            close();
+            return;
+        }
+        closeAfterFlush = true;
+        scheduleFlush();
+    }
+
+    public void close() {
+        close(null);
+    }
+
+    CompletableFuture<ChatSession> handshake() {
+        return handshake;
+    }
+
+    /** Wakes the writer; callable from any thread. */
+    abstract void scheduleFlush();
+
+    /**
+     * Called once by whichever thread closed the session, after the channel is closed. The
+     * implementation must see that {@link #finish} runs exactly once.
+     */
+    abstract void closed(State was, IOException cause);
+
+    /** Reader side, once the handshake is complete; a writer that waits for heartbeats starts here. */
+    void opened() {
+    }
+
+    void handshakeTimedOut() {
+        if (state == State.CONNECTING || state == State.HANDSHAKE) {
+            close(new SocketTimeoutException("Timed out after " + Transport.CONNECT_TIMEOUT_MS + " ms."));
+        }
+    }
+
+    /** Writer side, once connected: queues the {@code JOIN} that opens the handshake. */
+    final void beginHandshake() throws IOException {
+        handshakeEvent = new ChatEvents.Handshake();
+        // Now, while the channel is still open to ask.
+        if (handshakeEvent.isEnabled()) handshakeEvent.remote = remote();
+        handshakeEvent.begin();
+        state = State.HANDSHAKE;
+        Capabilities offered = Capabilities.none();
+        if (requestedFraming != Framing.TEXT) offered.with(Capabilities.FRAMING, requestedFraming.wireName());
+        if (requestedCompression != Compression.NONE) offered.with(Capabilities.COMPRESS, requestedCompression.wireName());
+        if (pingIntervalNanos > 0) offered.with(Capabilities.PING, "1");
+        extraCapabilities.asMap().forEach(offered::with);
+        encode(new ChatMessage(MessageType.JOIN, nickname, System.currentTimeMillis(), offered.toString()));
+    }
+
+    /** Reader side: decodes what has been read into {@code inbound}. True if the writer now has work. */
+    final boolean readFrames() throws IOException {
+        ChatEvents.ReadBatch event = new ChatEvents.ReadBatch();
+        event.begin();
+        inbound.begin();
+        Frame frame;
+        boolean wake = false;
+        int frames = 0;
+        lastHeard = System.nanoTime();
+        // A CAPS reply switches framing and compression mid-buffer; the reader applies it to what follows.
+        while (state != State.CLOSED && (frame = inbound.next()) != null) {
+            frames++;
+            if (state == State.HANDSHAKE) {
+                wake |= onHandshakeFrame(frame);
+            } else if (frame.type() == MessageType.ACK) {
+                ackedUpTo = frame.seq();
+                wake = true;
+            } else if (frame.type() == MessageType.PONG) {
+                long nanos = System.nanoTime() - startNanos - frame.timestamp();
+                rtt.record(nanos);
+                RTT.record(nanos);
+            } else {
+                listener.onFrame(this, frame);
+            }
+        }
+        FRAMES_IN.add(frames);
+        if (event.shouldCommit()) {
+            event.frames = frames;
+            event.bytes = lastRead;
+            event.commit();
+        }
+        if (!inbound.end()) throw new IOException("Inbound frame exceeds " + BUFFER_SIZE + " bytes.");
+        return wake && !outbox.isEmpty();
+    }
+
+    private boolean onHandshakeFrame(Frame first) throws IOException {
+        if (first.type() == MessageType.CAPS) {
+            Capabilities caps = Capabilities.parse(first.body());
+            Framing f = Framing.fromWireName(caps.get(Capabilities.FRAMING));
+            if (f != requestedFraming && f != Framing.TEXT) {
+                throw new IOException("Server selected unsupported framing.");
+            }
+            Compression c = Compression.fromWireName(caps.get(Capabilities.COMPRESS));
+            if (c != requestedCompression && c != Compression.NONE) {
+                throw new IOException("Server selected unsupported compression.");
+            }
+            boolean sequenced = caps.isSet(Capabilities.SEQ);
+            boolean channels = caps.isSet(Capabilities.CHANNELS);
+            inbound.decoder(f.newDecoder(sequenced, channels));
+            encoder = f.newEncoder(sequenced, channels);
+            if (c != Compression.NONE) {
+                inbound.startInflating(c);
+                deflater = c.newDeflater(Compression.DEFAULT_THRESHOLD);
+                blockBuf = ByteBuffer.allocateDirect(BlockDeflater.maxBlockSize(BUFFER_SIZE));
+            }
+            framing = f;
+            acked = sequenced && caps.isSet(Capabilities.ACK);
+            pinging = pingIntervalNanos > 0 && caps.isSet(Capabilities.PING);
+            accepted = caps;
+            return false;
+        }
+        if (first.type() == MessageType.ERROR) {
+            String reason = first.body();
+            throw new RejectedException(reason.isEmpty() ? "Rejected." : reason);
+        }
+        if (first.type() != MessageType.SYSTEM) {
+            throw new IOException("Unexpected handshake response.");
+        }
+        state = State.OPEN;
+        HANDSHAKE.record(System.nanoTime() - startNanos);
+        OPENED.increment();
+        commitHandshake("accepted");
+        opened();
+        listener.onOpened(this);
+        handshake.complete(this);
+        // Lines queued before this session existed, e.g. during a reconnect.
+        return true;
+    }
+
+    /** Writer side: tops {@code writeBuf} up from the current batch, draining a new one when it is done. */
+    final void fillBatch() throws IOException {
+        if (pingDue) {
+            // Ahead of the batch, so a backlog does not inflate the measurement; a full buffer goes out first.
+            if (!encoder.encode(new ChatMessage(MessageType.PING, "", System.nanoTime() - startNanos, ""), writeBuf)) return;
+            pingDue = false;
+        }
+        if (batchIndex == batch.size()) {
+            batch.clear();
+            batchIndex = 0;
+            int room = maxBatch;
+            if (acked) {
+                outbox.acknowledge(ackedUpTo);
+                room = Math.min(maxBatch, maxInFlight - outbox.inFlight());
+            }
+            if (room <= 0) return;
+            outbox.drainTo(batch, room);
+            if (acked) batch.replaceAll(outbox::number);
+            if (!batch.isEmpty()) BATCH.record(batch.size());
+        }
+        while (batchIndex < batch.size()) {
+            ChatMessage m = batch.get(batchIndex);
+            // A full buffer is written out first; only an empty one that cannot fit the message is fatal.
+            if (!encoder.encode(m, writeBuf)) {
+                if (writeBuf.position() > 0) return;
+                throw new IOException("Outbound message exceeds " + BUFFER_SIZE + " bytes.");
+            }
+            if (acked) outbox.sent(m);
+            batchIndex++;
+            linesSinceWrite++;
+            MESSAGES_OUT.increment();
+        }
+    }
+
+    /**
+     * Writer side, while open: marks a {@code PING} due if an interval has passed, and fails once
+     * the server has been silent for {@link #MISSED_PINGS} intervals. Returns the nanoseconds until
+     * it next needs calling, or 0 if the session does not ping.
+     */
+    final long heartbeat() throws IOException {
+        if (state != State.OPEN || !pinging) return 0;
+        long now = System.nanoTime();
+        if (nextPing == 0) nextPing = now + pingIntervalNanos;
+        long silent = now - lastHeard;
+        if (silent > MISSED_PINGS * pingIntervalNanos) {
+            throw new SocketTimeoutException("No reply from server in " + silent / 1_000_000 + " ms.");
+        }
+        long wait = nextPing - now;
+        if (wait > 0) return wait;
+        pingDue = true;
+        nextPing = now + pingIntervalNanos;
+        return pingIntervalNanos;
+    }
+
+    /**
+     * Writer side: the bytes to put on the wire next, in write mode. With compression the frames
+     * encoded so far are sealed into one block whenever the previous block has gone out.
+     */
+    final ByteBuffer outbound() {
+        if (deflater == null) return writeBuf;
+        if (blockBuf.position() == 0 && writeBuf.position() > 0) {
+            writeBuf.flip();
+            deflater.write(writeBuf, blockBuf);
+            writeBuf.clear();
+        }
+        return blockBuf;
+    }
+
+    /** Writer side: encoded bytes, compressed or not, that have not reached the socket yet. */
+    final boolean hasUnwritten() {
+        return writeBuf.position() > 0 || blockBuf != null && blockBuf.position() > 0;
+    }
+
+    /** Writer side: everything queued has been written and the session was asked to leave. */
+    final boolean leaveComplete() {
+        return closeAfterFlush && outbox.isEmpty() && batchIndex == batch.size();
+    }
+
+    /** Reads from the socket, decrypting if this is a TLS session. */
+    final int read(ByteBuffer dst) throws IOException {
+        int n = tls == null ? channel.read(dst) : tls.read(dst);
+        if (n > 0) BYTES_IN.add(n);
+        lastRead = n;
+        return n;
+    }
+
+    /** Writes what the socket takes of {@code src}; true if none of it is left, encrypted or not. */
+    final boolean write(ByteBuffer src) throws IOException {
+        ChatEvents.WriteBatch event = new ChatEvents.WriteBatch();
+        event.begin();
+        long start = System.nanoTime();
+        int before = src.remaining();
+        boolean drained = false;
+        try {
+            if (tls == null) {
+                channel.write(src);
+                drained = !src.hasRemaining();
+            } else {
+                tls.write(src);
+                drained = !src.hasRemaining() && !tls.hasPendingOutput();
+            }
+            return drained;
+        } finally {
+            int written = before - src.remaining();
+            BYTES_OUT.add(written);
+            WRITE.record(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.lines = linesSinceWrite;
+                event.bytes = written;
+                event.left = src.remaining();
+                event.tls = tls != null;
+                event.commit();
+            }
+            if (drained) linesSinceWrite = 0;
+        }
+    }
+
+    /** Decrypted or still-encrypted bytes that arrived with an earlier read and wait in the TLS layer. */
+    final boolean hasBufferedInput() {
+        return tls != null && tls.hasBufferedInput();
+    }
+
+    // Once per session: the reader on success, or whichever thread finishes a failed one.
+    private void commitHandshake(String outcome) {
+        ChatEvents.Handshake e = handshakeEvent;
+        handshakeEvent = null;
+        if (e == null || !e.shouldCommit()) return;
+        e.nickname = nickname;
+        e.framing = framing.wireName();
+        e.compression = deflater == null ? Compression.NONE.wireName() : requestedCompression.wireName();
+        e.tls = tls != null;
+        e.outcome = outcome;
+        e.commit();
+    }
+
+    private String remote() {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+
+    private void encode(ChatMessage m) throws IOException {
+        if (!encoder.encode(m, writeBuf)) throw new IOException("Outbound message exceeds " + BUFFER_SIZE + " bytes.");
+    }
+
+    final void close(IOException cause) {
+        if (!closed.compareAndSet(false, true)) return;
+        State was = state;
+        state = State.CLOSED;
+        if (cause != null) FAILED.increment();
+        try {
+            if (tls != null) tls.close();
+            else channel.close();
+        } catch (IOException ignored) {
+        }
+        closed(was, cause);
+    }
+
+    /**
+     * Frees the zlib state of a compressed session. Only the writer may call it, after the close:
+     * the reader has finished or is the same thread. {@link #finish} with {@code rewind} calls it.
+     */
+    final void releaseCompression() {
+        inbound.endInflating();
+        if (deflater != null) deflater.end();
+    }
+
+    /**
+     * Reports the close. With {@code rewind}, which only the writer may pass, unsent and
+     * unacknowledged lines go back to the outbox first; without it they are abandoned.
+     */
+    final void finish(State was, IOException cause, boolean rewind) {
+        if (rewind) {
+            if (acked) outbox.acknowledge(ackedUpTo);
+            outbox.rewind(new ArrayList<>(batch.subList(batchIndex, batch.size())));
+            batch.clear();
+            batchIndex = 0;
+            releaseCompression();
+        }
+        if (was != State.OPEN) {
+            commitHandshake(cause instanceof RejectedException ? "rejected: " + cause.getMessage()
+                    : cause != null ? cause.toString() : "closed");
+            handshake.completeExceptionally(cause != null ? cause : new IOException("Connection closed during handshake."));
+        } else {
+            listener.onClosed(this, cause);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package Client;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of non-negative longs with about 3% relative error: values
+ * below 64 are exact, larger ones fall into 32 sub-buckets per power of two. Recording is one
+ * atomic increment, so it is safe on hot paths and from many threads at once.
+ */
+public final class Histogram {
+    private static final int BUCKETS = 64 + 58 * 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public Histogram() {
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(index(value));
+        total.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public double mean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /** Upper bound of the bucket holding the given percentile (0-100), or 0 when empty. */
+    public long percentile(double p) {
+        long n = total.sum();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    static int index(long v) {
+        if (v < 64) return (int) v;
+        int b = 63 - Long.numberOfLeadingZeros(v) - 5;
+        return 64 + (b - 1) * 32 + (int) (v >>> b) - 32;
+    }
+
+    static long upperBound(int index) {
+        if (index < 64) return index;
+        int k = index - 64;
+        int b = k / 32 + 1;
+        long sub = k % 32 + 32;
+        return ((sub + 1) << b) - 1;
+    }
+}
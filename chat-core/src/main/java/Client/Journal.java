@@ -0,0 +1,417 @@
+package Client;
+
+import Protocol.BinaryDecoder;
+import Protocol.BinaryEncoder;
+import Protocol.ChatMessage;
+import Protocol.Frame;
+import Protocol.MessageType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only history of one channel in memory-mapped segment files, so it survives restarts
+ * without living on the heap. Records are messages in the binary wire framing between two copies
+ * of their length, which lets readers walk backwards as easily as forwards; the leading copy is
+ * written last, so a torn append is simply not there. Each segment has a sparse index of
+ * (timestamp, position) every {@link #INDEX_INTERVAL} bytes, used to find the end of the log on
+ * open without scanning it and to seek by time. Only the segment being written stays mapped,
+ * plus a few recently read. Thread-safe.
+ * <p>
+ * Positions are cursors: segment number in the high 32 bits, byte offset in the low 32.
+ * <p>
+ * {@code CHAT} lines are also kept in a {@link SearchIndex}: appends index as they go once a
+ * background {@link #indexMore pass} has caught up with what earlier runs wrote.
+ */
+public final class Journal implements Closeable {
+    static final int INDEX_INTERVAL = 4096;
+    private static final int INDEX_ENTRY = 12;
+    private static final int CACHED_SEGMENTS = 4;
+
+    /** Messages read, oldest first, and the cursor to carry on from. */
+    public record Page(List<ChatMessage> messages, long cursor) {}
+
+    /** A search result and the cursor it starts at. */
+    public record Hit(long cursor, ChatMessage message) {}
+
+    // Sees each record once, in order; true if it counts towards a read's maximum.
+    private interface Visitor {
+        boolean visit(long cursor, ChatMessage m);
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final BinaryEncoder encoder = new BinaryEncoder(false, true);
+    private final BinaryDecoder decoder = new BinaryDecoder(false, true);
+    private final ArrayList<Integer> ids = new ArrayList<>();
+    private final Map<Integer, Segment> cache = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Segment> eldest) {
+            return size() > CACHED_SEGMENTS;
+        }
+    };
+    private final long start;
+    private final SearchIndex index = new SearchIndex();
+    // Everything before this is in the index; appends index themselves once it reaches the end.
+    private long indexedTo;
+    private Segment active;
+
+    private Journal(Path dir, int segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith(".log"))
+                    .forEach(n -> ids.add(Integer.parseInt(n.substring(0, n.length() - 4))));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected file in journal " + dir + ".", e);
+        }
+        Collections.sort(ids);
+        if (ids.isEmpty()) ids.add(0);
+        active = map(ids.getLast(), true);
+        start = cursor(active.id, active.end);
+        indexedTo = cursor(ids.getFirst(), 0);
+    }
+
+    static Journal open(Path dir, int segmentBytes) throws IOException {
+        return new Journal(dir, segmentBytes);
+    }
+
+    /** Where the log ended when it was opened: everything before is history from earlier runs. */
+    public long start() {
+        return start;
+    }
+
+    /** Where the log ends now. */
+    public long end() {
+        lock.lock();
+        try {
+            return active == null ? start : cursor(active.id, active.end);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Appends {@code m} and returns its cursor. */
+    long append(ChatMessage m) throws IOException {
+        lock.lock();
+        try {
+            if (active == null) throw new IOException("Journal closed.");
+            boolean caughtUp = indexedTo == cursor(active.id, active.end);
+            if (!active.append(m)) {
+                int next = active.id + 1;
+                active.force();
+                cache.put(active.id, active);
+                active = map(next, true);
+                ids.add(next);
+                if (caughtUp) indexedTo = cursor(next, 0);
+                if (!active.append(m)) throw new IOException("Message does not fit in a journal segment.");
+            }
+            long at = cursor(active.id, active.end - active.lastLength);
+            if (caughtUp) {
+                indexed(at, m);
+                indexedTo = cursor(active.id, active.end);
+            }
+            return at;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indexes up to {@code max} more records written before the index caught up; false once it has,
+     * or the journal is closed. Holds the lock for one call, so callers loop in small steps.
+     */
+    boolean indexMore(int max) throws IOException {
+        lock.lock();
+        try {
+            if (active == null) return false;
+            indexedTo = scan(indexedTo, max, (at, m) -> {
+                indexed(at, m);
+                return true;
+            });
+            return indexedTo != cursor(active.id, active.end);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Whether every record so far is searchable. */
+    public boolean indexed() {
+        lock.lock();
+        try {
+            return active == null || indexedTo == cursor(active.id, active.end);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Up to {@code max} indexed {@code CHAT} lines matching {@code query}, newest first. */
+    public List<Hit> search(String query, int max) throws IOException {
+        lock.lock();
+        try {
+            int[] docs = index.search(query, max);
+            List<Hit> out = new ArrayList<>(docs.length);
+            for (int d : docs) {
+                long at = index.ref(d);
+                ChatMessage m = read(at);
+                if (m != null) out.add(new Hit(at, m));
+            }
+            return out;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Up to {@code max} messages just before {@code cursor}; an empty page means there are none. */
+    public Page readBefore(long cursor, int max) throws IOException {
+        lock.lock();
+        try {
+            int id = (int) (cursor >>> 32);
+            int pos = (int) cursor;
+            Segment s = segment(id);
+            ArrayList<ChatMessage> out = new ArrayList<>(Math.min(max, 256));
+            while (out.size() < max) {
+                if (pos == 0) {
+                    int i = Collections.binarySearch(ids, id);
+                    if (i <= 0) break;
+                    id = ids.get(i - 1);
+                    s = segment(id);
+                    pos = s.end;
+                    continue;
+                }
+                int len = s.log.getInt(pos - 4);
+                int from = pos - 8 - len;
+                // A record that does not frame itself is damage; everything before it is out of reach.
+                if (len <= 0 || from < 0 || s.log.getInt(from) != len) break;
+                ChatMessage m = decode(s, from + 4, len);
+                if (m != null) out.add(m);
+                pos = from;
+            }
+            Collections.reverse(out);
+            return new Page(out, cursor(id, pos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Up to {@code max} messages from the one at {@code cursor} on. */
+    public Page readAfter(long cursor, int max) throws IOException {
+        lock.lock();
+        try {
+            ArrayList<ChatMessage> out = new ArrayList<>(Math.min(max, 256));
+            long next = scan(cursor, max, (_, m) -> out.add(m));
+            return new Page(out, next);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Up to {@code max} messages from the first one stamped at or after {@code timestamp}. */
+    public Page readSince(long timestamp, int max) throws IOException {
+        lock.lock();
+        try {
+            // The last segment that starts no later than timestamp; the index narrows it down from there.
+            int lo = 0;
+            int hi = ids.size() - 1;
+            int at = 0;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                Segment s = segment(ids.get(mid));
+                if (s.entries > 0 && s.timestampAt(0) <= timestamp) {
+                    at = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            Segment s = segment(ids.get(at));
+            ArrayList<ChatMessage> out = new ArrayList<>(Math.min(max, 256));
+            long next = scan(cursor(s.id, s.floor(timestamp)), max, (_, m) -> m.timestamp() >= timestamp && out.add(m));
+            return new Page(out, next);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (active != null) active.force();
+            active = null;
+            cache.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Forward from cursor until max records have counted or the log ends; returns where it stopped.
+    private long scan(long cursor, int max, Visitor visitor) throws IOException {
+        int id = (int) (cursor >>> 32);
+        int pos = (int) cursor;
+        Segment s = segment(id);
+        int counted = 0;
+        while (counted < max) {
+            if (pos >= s.end) {
+                int i = Collections.binarySearch(ids, id);
+                if (i < 0 || i + 1 >= ids.size()) break;
+                id = ids.get(i + 1);
+                s = segment(id);
+                pos = 0;
+                continue;
+            }
+            int len = s.log.getInt(pos);
+            ChatMessage m = decode(s, pos + 4, len);
+            if (m != null && visitor.visit(cursor(id, pos), m)) counted++;
+            pos += len + 8;
+        }
+        return cursor(id, pos);
+    }
+
+    private ChatMessage read(long cursor) throws IOException {
+        Segment s = segment((int) (cursor >>> 32));
+        int pos = (int) cursor;
+        return pos + 8 > s.end ? null : decode(s, pos + 4, s.log.getInt(pos));
+    }
+
+    private void indexed(long at, ChatMessage m) {
+        if (m.type() == MessageType.CHAT) index.add(at, m.from(), m.body());
+    }
+
+    private ChatMessage decode(Segment s, int off, int len) {
+        try {
+            Frame f = decoder.decode(s.log.duplicate().position(off).limit(off + len));
+            return f == null ? null : f.toMessage();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Segment segment(int id) throws IOException {
+        if (active != null && id == active.id) return active;
+        Segment s = cache.get(id);
+        if (s == null) {
+            s = map(id, false);
+            cache.put(id, s);
+        }
+        return s;
+    }
+
+    private Segment map(int id, boolean writable) throws IOException {
+        Path log = dir.resolve(String.format("%010d.log", id));
+        Path idx = dir.resolve(String.format("%010d.idx", id));
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        StandardOpenOption[] options = writable
+                ? new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[] {StandardOpenOption.READ};
+        // The mappings outlive the channels.
+        try (FileChannel l = FileChannel.open(log, options); FileChannel x = FileChannel.open(idx, options)) {
+            long logSize = writable ? Math.max(l.size(), segmentBytes) : l.size();
+            long idxSize = writable ? Math.max(x.size(), (logSize / INDEX_INTERVAL + 1) * INDEX_ENTRY) : x.size();
+            return new Segment(id, l.map(mode, 0, logSize), x.map(mode, 0, idxSize));
+        }
+    }
+
+    private static long cursor(int id, int pos) {
+        return (long) id << 32 | pos;
+    }
+
+    private final class Segment {
+        final int id;
+        final MappedByteBuffer log;
+        final MappedByteBuffer index;
+        int end;
+        int entries;
+        int nextIndexAt;
+        int lastLength;
+
+        Segment(int id, MappedByteBuffer log, MappedByteBuffer index) {
+            this.id = id;
+            this.log = log;
+            this.index = index;
+            recover();
+        }
+
+        // Picks up after the last indexed record, so opening costs at most one interval of scanning.
+        private void recover() {
+            int max = index.capacity() / INDEX_ENTRY;
+            int pos = 0;
+            while (entries < max && timestampAt(entries) != 0) pos = index.getInt(entries++ * INDEX_ENTRY + 8);
+            if (entries > 0) nextIndexAt = pos + INDEX_INTERVAL;
+            int len;
+            while ((len = lengthAt(pos)) > 0) pos += len + 8;
+            end = pos;
+        }
+
+        private int lengthAt(int pos) {
+            if (pos + 8 > log.capacity()) return -1;
+            int len = log.getInt(pos);
+            if (len <= 0 || len > log.capacity() - pos - 8 || log.getInt(pos + 4 + len) != len) return -1;
+            return len;
+        }
+
+        long timestampAt(int entry) {
+            return index.getLong(entry * INDEX_ENTRY);
+        }
+
+        /** Position of the last indexed record stamped no later than {@code timestamp}, or 0. */
+        int floor(long timestamp) {
+            int lo = 0;
+            int hi = entries - 1;
+            int pos = 0;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (timestampAt(mid) <= timestamp) {
+                    pos = index.getInt(mid * INDEX_ENTRY + 8);
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return pos;
+        }
+
+        boolean append(ChatMessage m) {
+            int pos = end;
+            int cap = log.capacity();
+            if (pos + 8 >= cap) return false;
+            log.limit(cap - 4).position(pos + 4);
+            boolean fits = encoder.encode(m, log);
+            int len = log.position() - pos - 4;
+            log.clear();
+            if (!fits) return false;
+            log.putInt(pos + 4 + len, len);
+            log.putInt(pos, len);
+            end = pos + 8 + len;
+            lastLength = 8 + len;
+            if (pos >= nextIndexAt && m.timestamp() != 0 && (entries + 1) * INDEX_ENTRY <= index.capacity()) {
+                // Position before timestamp: a non-zero timestamp is what makes the entry count.
+                index.putInt(entries * INDEX_ENTRY + 8, pos);
+                index.putLong(entries * INDEX_ENTRY, m.timestamp());
+                entries++;
+                nextIndexAt = pos + INDEX_INTERVAL;
+            }
+            return true;
+        }
+
+        void force() {
+            log.force();
+            index.force();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package Client;
+
+import Protocol.ChatMessage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * The {@link Journal}s of one server, a directory per channel ({@code lobby}, {@code room-<name>}),
+ * each opened the first time it is written or read. Appends and opens run on a writer thread of
+ * their own, so neither the transport's loop nor the EDT waits for a file to be mapped, a segment
+ * to be forced, or a journal lock held by indexing or a search. A second daemon thread brings each
+ * journal's search index up to date with what earlier runs wrote, a page at a time. Thread-safe.
+ */
+public final class Journals implements Closeable {
+    private static final int INDEX_PAGE = 4096;
+    private static final int CLOSE_WAIT_SECONDS = 5;
+
+    private final Path root;
+    private final int segmentBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Journal> open = new HashMap<>();
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("ChatJournalIndexer").daemon(true).factory());
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("ChatJournalWriter").daemon(true).factory());
+    private boolean closed;
+
+    public Journals(Path root, int segmentBytes) {
+        this.root = root;
+        this.segmentBytes = segmentBytes;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    /** Opens {@code channel}'s journal on the writer thread, after any append already queued. */
+    public CompletableFuture<Journal> open(String channel) {
+        CompletableFuture<Journal> opened = new CompletableFuture<>();
+        try {
+            writer.execute(() -> {
+                try {
+                    opened.complete(get(channel));
+                } catch (IOException e) {
+                    opened.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            opened.completeExceptionally(new IOException("Journals closed."));
+        }
+        return opened;
+    }
+
+    /** Opens {@code channel}'s journal on the calling thread; see {@link #open}. */
+    public Journal get(String channel) throws IOException {
+        lock.lock();
+        try {
+            if (closed) throw new IOException("Journals closed.");
+            Journal j = open.get(channel);
+            if (j == null) {
+                String name = channel.isEmpty() ? "lobby" : "room-" + channel.substring(1);
+                j = Journal.open(root.resolve(name), segmentBytes);
+                open.put(channel, j);
+                Journal opened = j;
+                indexer.execute(() -> {
+                    try {
+                        while (opened.indexMore(INDEX_PAGE)) {
+                            // The lock is let go between pages, so appends and searches wait one page at most.
+                        }
+                    } catch (IOException e) {
+                        // Search covers what was indexed; the journal itself reports its own failures.
+                    }
+                });
+            }
+            return j;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Queues {@code m} for the writer thread and returns at once; {@code failed} hears of a failed append there. */
+    void append(ChatMessage m, Consumer<IOException> failed) {
+        try {
+            writer.execute(() -> {
+                try {
+                    get(m.channel()).append(m);
+                } catch (IOException e) {
+                    failed.accept(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            failed.accept(new IOException("Journals closed."));
+        }
+    }
+
+    /** Waits up to {@link #CLOSE_WAIT_SECONDS} for queued appends to land, then closes every journal. */
+    @Override
+    public void close() {
+        try {
+            writer.execute(this::closeAll);
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(CLOSE_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs last on the writer, so no append still queued finds the indexer shut down.
+    private void closeAll() {
+        lock.lock();
+        try {
+            closed = true;
+            indexer.shutdownNow();
+            open.values().forEach(Journal::close);
+            open.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
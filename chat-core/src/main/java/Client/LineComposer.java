@@ -0,0 +1,28 @@
+package Client;
+
+import Protocol.ChatMessage;
+
+/** Builds transcript lines into a reused {@link StringBuilder}. Not thread-safe. */
+public final class LineComposer {
+    private final TimestampCache times;
+    private final StringBuilder sb = new StringBuilder(128);
+
+    public LineComposer(TimestampCache times) {
+        this.times = times;
+    }
+
+    public String compose(ChatMessage m) {
+        sb.setLength(0);
+        if (m.timestamp() == ChatMessage.NO_TIMESTAMP) {
+            sb.append("[SYSTEM] ");
+        } else {
+            sb.append(times.format(m.timestamp())).append("  ");
+            switch (m.type()) {
+                case CHAT -> sb.append('[').append(m.from()).append("] ");
+                case ERROR -> sb.append("[ERROR] ");
+                default -> sb.append("[SYSTEM] ");
+            }
+        }
+        return sb.append(m.body()).toString();
+    }
+}
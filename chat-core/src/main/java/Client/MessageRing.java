@@ -0,0 +1,69 @@
+package Client;
+
+import Protocol.ChatMessage;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity FIFO of messages; adding to a full ring overwrites the oldest entry.
+ * Every message ever added gets a sequential id, so callers can address rows across evictions.
+ */
+public final class MessageRing {
+    private final ChatMessage[] slots;
+    private int head;
+    private int size;
+    private long added;
+
+    public MessageRing(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        slots = new ChatMessage[capacity];
+    }
+
+    /** Returns true if the oldest message was evicted to make room. */
+    public boolean add(ChatMessage m) {
+        int cap = slots.length;
+        boolean evicted = size == cap;
+        slots[(head + size) % cap] = m;
+        if (evicted) head = (head + 1) % cap;
+        else size++;
+        added++;
+        return evicted;
+    }
+
+    /**
+     * Inserts {@code m} before the oldest message, for history loaded after newer messages. Never
+     * evicts: returns false, adding nothing, if the ring is full.
+     */
+    public boolean addFirst(ChatMessage m) {
+        if (size == slots.length) return false;
+        head = (head - 1 + slots.length) % slots.length;
+        slots[head] = m;
+        size++;
+        return true;
+    }
+
+    /** Row {@code i} counted from the oldest retained message. */
+    public ChatMessage get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        return slots[(head + i) % slots.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /** Id of the oldest retained message; ids run from here to {@code firstId() + size() - 1}. */
+    public long firstId() {
+        return added - size;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, null);
+        head = 0;
+        size = 0;
+    }
+}
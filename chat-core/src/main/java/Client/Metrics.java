@@ -0,0 +1,258 @@
+package Client;
+
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, timers and gauges, readable as Prometheus text, over JMX and as a plain-text
+ * dump. Counters are {@link LongAdder}s and timers {@link Histogram}s, so recording is a few
+ * uncontended atomic adds on any thread; only registering and reading walk the registry. Timers
+ * record nanoseconds and export seconds. Registering a name again returns the existing counter
+ * or timer, and replaces a gauge.
+ */
+public final class Metrics {
+    private enum Kind { COUNTER, GAUGE, TIMER, HISTOGRAM }
+
+    private record Entry(String name, String help, Kind kind, Object instrument) {}
+
+    private static final class Shared {
+        static final Metrics INSTANCE = new Metrics();
+    }
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<String, Entry> byName = new ConcurrentHashMap<>();
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+    private Metrics() {
+    }
+
+    /** The registry the client runtime records into. */
+    public static Metrics shared() {
+        return Shared.INSTANCE;
+    }
+
+    public LongAdder counter(String name, String help) {
+        return (LongAdder) register(name, help, Kind.COUNTER, new LongAdder());
+    }
+
+    /** A histogram of durations in nanoseconds, exported in seconds. */
+    public Histogram timer(String name, String help) {
+        return (Histogram) register(name, help, Kind.TIMER, new Histogram());
+    }
+
+    /** A histogram of plain values, such as batch sizes. */
+    public Histogram histogram(String name, String help) {
+        return (Histogram) register(name, help, Kind.HISTOGRAM, new Histogram());
+    }
+
+    /** Reads {@code value} whenever the registry is read; it must be cheap and thread-safe. */
+    public void gauge(String name, String help, LongSupplier value) {
+        Entry e = new Entry(name, help, Kind.GAUGE, value);
+        synchronized (entries) {
+            Entry old = byName.put(name, e);
+            if (old != null) entries.set(entries.indexOf(old), e);
+            else entries.add(e);
+        }
+    }
+
+    /** Current value of a counter or gauge, or how many values a histogram has seen; 0 if unknown. */
+    public long value(String name) {
+        Entry e = byName.get(name);
+        if (e == null) return 0;
+        return switch (e.instrument) {
+            case LongAdder c -> c.sum();
+            case LongSupplier g -> g.getAsLong();
+            case Histogram h -> h.count();
+            default -> 0;
+        };
+    }
+
+    /** The registry in the Prometheus text exposition format. */
+    public String prometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Entry e : entries) {
+            String type = switch (e.kind) {
+                case COUNTER -> "counter";
+                case GAUGE -> "gauge";
+                case TIMER, HISTOGRAM -> "summary";
+            };
+            sb.append("# HELP ").append(e.name).append(' ').append(e.help).append('\n');
+            sb.append("# TYPE ").append(e.name).append(' ').append(type).append('\n');
+            switch (e.instrument) {
+                case LongAdder c -> sb.append(e.name).append(' ').append(c.sum()).append('\n');
+                case LongSupplier g -> sb.append(e.name).append(' ').append(g.getAsLong()).append('\n');
+                case Histogram h -> {
+                    // Nanoseconds to seconds exactly, rather than through a double.
+                    int scale = e.kind == Kind.TIMER ? 9 : 0;
+                    for (double q : QUANTILES) {
+                        sb.append(e.name).append("{quantile=\"").append(q).append("\"} ")
+                                .append(BigDecimal.valueOf(h.percentile(q * 100), scale).toPlainString()).append('\n');
+                    }
+                    sb.append(e.name).append("_sum ").append(BigDecimal.valueOf(h.sum(), scale).toPlainString()).append('\n');
+                    sb.append(e.name).append("_count ").append(h.count()).append('\n');
+                }
+                default -> throw new IllegalStateException(e.name);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** One line per metric, timers in milliseconds, for people rather than scrapers. */
+    public String text() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Entry e : entries) {
+            sb.append(String.format(Locale.ROOT, "%-44s ", e.name));
+            switch (e.instrument) {
+                case LongAdder c -> sb.append(c.sum());
+                case LongSupplier g -> sb.append(g.getAsLong());
+                case Histogram h when e.kind == Kind.TIMER -> sb.append(String.format(Locale.ROOT,
+                        "n=%d p50=%.3f p99=%.3f max=%.3f ms", h.count(), h.percentile(50) / 1e6,
+                        h.percentile(99) / 1e6, h.max() / 1e6));
+                case Histogram h -> sb.append(String.format(Locale.ROOT, "n=%d p50=%d p99=%d max=%d mean=%.1f",
+                        h.count(), h.percentile(50), h.percentile(99), h.max(), h.mean()));
+                default -> throw new IllegalStateException(e.name);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Publishes the registry as a platform MBean: counters and gauges as attributes of their own
+     * name, timers and histograms as {@code name.count}, {@code .p50}, {@code .p99} and {@code .max}.
+     */
+    public void exportJmx(String objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(objectName));
+        } catch (InstanceAlreadyExistsException ignored) {
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Cannot register metrics as " + objectName + ".", e);
+        }
+    }
+
+    /** Serves {@link #prometheus()} at {@code /metrics} on the loopback interface until closed. */
+    public Closeable serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = prometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return () -> server.stop(0);
+    }
+
+    private Object register(String name, String help, Kind kind, Object instrument) {
+        Entry e = byName.get(name);
+        if (e == null) {
+            synchronized (entries) {
+                e = byName.get(name);
+                if (e == null) {
+                    e = new Entry(name, help, kind, instrument);
+                    byName.put(name, e);
+                    entries.add(e);
+                }
+            }
+        }
+        if (e.kind != kind) throw new IllegalArgumentException(name + " is already a " + e.kind + ".");
+        return e.instrument;
+    }
+
+    private final class Bean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            int dot = attribute.lastIndexOf('.');
+            Entry e = byName.get(dot < 0 ? attribute : attribute.substring(0, dot));
+            if (e == null) throw new AttributeNotFoundException(attribute);
+            Object value = switch (e.instrument) {
+                case LongAdder c when dot < 0 -> c.sum();
+                case LongSupplier g when dot < 0 -> g.getAsLong();
+                case Histogram h when dot >= 0 -> switch (attribute.substring(dot + 1)) {
+                    case "count" -> h.count();
+                    case "p50" -> h.percentile(50);
+                    case "p99" -> h.percentile(99);
+                    case "max" -> h.max();
+                    default -> null;
+                };
+                default -> null;
+            };
+            if (value == null) throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList out = new AttributeList();
+            for (String a : attributes) {
+                try {
+                    out.add(new Attribute(a, getAttribute(a)));
+                } catch (AttributeNotFoundException ignored) {
+                }
+            }
+            return out;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName() + " is read-only.");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String action, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException(action);
+        }
+
+        // Rebuilt on each call, so metrics registered after export still show up.
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attrs = new ArrayList<>();
+            for (Entry e : entries) {
+                if (e.instrument instanceof Histogram) {
+                    for (String part : new String[] {"count", "p50", "p99", "max"}) {
+                        attrs.add(new MBeanAttributeInfo(e.name + "." + part, "long",
+                                e.help + (e.kind == Kind.TIMER && !part.equals("count") ? " (ns)" : ""),
+                                true, false, false));
+                    }
+                } else {
+                    attrs.add(new MBeanAttributeInfo(e.name, "long", e.help, true, false, false));
+                }
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Chat client metrics",
+                    attrs.toArray(MBeanAttributeInfo[]::new), null, null, null);
+        }
+    }
+}
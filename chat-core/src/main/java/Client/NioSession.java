@@ -0,0 +1,180 @@
+package Client;
+
+import Protocol.Capabilities;
+import Protocol.TlsChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link ChatSession} on a {@link NioTransport}: reader and writer are both the event loop,
+ * and a write the socket cannot take at once waits for {@code OP_WRITE}. A TLS handshake runs
+ * between connecting and sending {@code JOIN}, waiting for whichever event the engine needs.
+ */
+final class NioSession extends ChatSession {
+    private final NioTransport transport;
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final Runnable flushTask = this::scheduledFlush;
+    private final Runnable lingerTask = this::lingerExpired;
+    private final Runnable heartbeatTask = this::heartbeatTick;
+    private long lingerDeadline;
+    private SelectionKey key;
+
+    NioSession(NioTransport transport, SocketChannel channel, TlsChannel tls, String nickname, SessionOptions options,
+               Capabilities extraCapabilities, Outbox outbox, SessionListener listener) {
+        super(channel, tls, nickname, options, extraCapabilities, outbox, listener);
+        this.transport = transport;
+    }
+
+    void register() {
+        try {
+            key = channel.register(transport.selector(), 0, this);
+            if (channel.isConnectionPending()) key.interestOps(SelectionKey.OP_CONNECT);
+            else onConnected();
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    void handleEvent(SelectionKey k) {
+        try {
+            if (k.isConnectable()) {
+                if (channel.finishConnect()) onConnected();
+                return;
+            }
+            if (tls != null && !tls.isHandshaken()) {
+                onConnected();
+                return;
+            }
+            if (k.isValid() && k.isReadable()) onReadable();
+            if (k.isValid() && k.isWritable()) flush();
+        } catch (IOException e) {
+            close(e);
+        } catch (CancelledKeyException ignored) {
+        }
+    }
+
+    // Re-entered on each event until TLS, if any, is set up.
+    private void onConnected() throws IOException {
+        if (tls != null) {
+            TlsChannel.Handshake h = tls.handshake();
+            if (h != TlsChannel.Handshake.DONE) {
+                key.interestOps(h == TlsChannel.Handshake.NEEDS_READ ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        beginHandshake();
+        flush();
+    }
+
+    private void onReadable() throws IOException {
+        int n;
+        // TLS may have decrypted more than fitted; the selector will not report it again.
+        do {
+            n = read(inbound.readTarget());
+            if (n < 0) {
+                close(state == State.OPEN ? null : new IOException("Server closed connection during handshake."));
+                return;
+            }
+            if (readFrames()) flush();
+        } while (n > 0 && state != State.CLOSED && hasBufferedInput());
+    }
+
+    @Override
+    void scheduleFlush() {
+        if (writeScheduled.compareAndSet(false, true)) transport.execute(flushTask);
+    }
+
+    private void scheduledFlush() {
+        writeScheduled.set(false);
+        try {
+            flush();
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    @Override
+    void opened() {
+        // Not inline: the reader is still partway through a buffer.
+        transport.execute(heartbeatTask);
+    }
+
+    // Reschedules itself for as long as the session is open and pinging.
+    private void heartbeatTick() {
+        try {
+            long wait = heartbeat();
+            if (wait == 0) return;
+            transport.schedule(System.nanoTime() + wait, heartbeatTask);
+            flush();
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    private void lingerExpired() {
+        try {
+            flush();
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    private void flush() throws IOException {
+        if (state == State.CLOSED || tls != null && !tls.isHandshaken()) return;
+        if (shouldLinger()) return;
+        while (true) {
+            if (tls != null && !tls.flushPending()) {
+                key.interestOpsOr(SelectionKey.OP_WRITE);
+                return;
+            }
+            if (state == State.OPEN) fillBatch();
+            ByteBuffer out = outbound();
+            if (out.position() == 0) break;
+            out.flip();
+            boolean drained = write(out);
+            out.compact();
+            if (!drained) {
+                key.interestOpsOr(SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        key.interestOpsAnd(~SelectionKey.OP_WRITE);
+        if (leaveComplete()) close(null);
+    }
+
+    private boolean shouldLinger() {
+        if (lingerNanos == 0 || closeAfterFlush || batchIndex < batch.size() || hasUnwritten()) return false;
+        int queued = outbox.size();
+        if (queued == 0 || queued >= maxBatch) {
+            lingerDeadline = 0;
+            return false;
+        }
+        long now = System.nanoTime();
+        if (lingerDeadline == 0) {
+            lingerDeadline = now + lingerNanos;
+            transport.schedule(lingerDeadline, lingerTask);
+            return true;
+        }
+        if (now - lingerDeadline < 0) return true;
+        lingerDeadline = 0;
+        return false;
+    }
+
+    @Override
+    void closed(State was, IOException cause) {
+        // Only the loop thread owns the batch; a close from elsewhere is a local one and abandons it,
+        // but still frees the zlib state there, once the loop is past any read in progress.
+        if (transport.inLoop()) {
+            finish(was, cause, true);
+        } else {
+            finish(was, cause, false);
+            transport.execute(this::releaseCompression);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package Client;
+
+import Protocol.Capabilities;
+import Protocol.TlsChannel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded selector loop that drives connect, read and write for any number of
+ * {@link ChatSession}s. Sessions never block the loop; all socket I/O is non-blocking.
+ * When a pass finds nothing to do the {@link WaitStrategy} decides whether to poll again or
+ * block in {@code select}; producers only pay for {@link Selector#wakeup()} while it is blocked.
+ */
+public final class NioTransport extends Transport {
+    private final Selector selector;
+    private final Thread loopThread;
+    private final WaitStrategy waitStrategy;
+    private volatile boolean parked;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+
+    private record Timer(long deadlineNanos, Runnable task) implements Comparable<Timer> {
+        @Override
+        public int compareTo(Timer o) {
+            return Long.compare(deadlineNanos, o.deadlineNanos);
+        }
+    }
+
+    private static final class Shared {
+        static final NioTransport INSTANCE = new NioTransport("ChatTransport",
+                WaitStrategy.fromName(System.getProperty("chat.transport.wait", "park")));
+    }
+
+    public static NioTransport shared() {
+        return Shared.INSTANCE;
+    }
+
+    public NioTransport(String name) {
+        this(name, WaitStrategy.PARK);
+    }
+
+    public NioTransport(String name, WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        loopThread = new Thread(this::run, name);
+        loopThread.setDaemon(true);
+        loopThread.start();
+    }
+
+    @Override
+    CompletableFuture<ChatSession> connect(String host, int port, String nick, SessionOptions options,
+                                           Capabilities extra, Outbox outbox, SessionListener listener) {
+        NioSession session;
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            TlsChannel tls = options.tls() == null ? null : options.tls().open(channel, host, port);
+            session = new NioSession(this, channel, tls, nick, options, extra, outbox, listener);
+            channel.connect(new InetSocketAddress(host, port));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        execute(session::register);
+        CompletableFuture.delayedExecutor(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .execute(() -> execute(session::handshakeTimedOut));
+        return session.handshake();
+    }
+
+    @Override
+    void runLater(long delayMillis, Runnable task) {
+        execute(() -> schedule(System.nanoTime() + delayMillis * 1_000_000, task));
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == loopThread;
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        // Pairs with the loop setting parked before its last look at tasks: one of us sees the other.
+        if (parked) selector.wakeup();
+    }
+
+    /** Runs {@code task} on the loop thread once {@code deadlineNanos} has passed. Loop thread only. */
+    void schedule(long deadlineNanos, Runnable task) {
+        timers.add(new Timer(deadlineNanos, task));
+    }
+
+    private void run() {
+        int idle = 0;
+        while (true) {
+            try {
+                int work;
+                if (idle > 0 && waitStrategy.idle(idle)) {
+                    work = selector.selectNow(this::dispatch);
+                } else {
+                    parked = true;
+                    work = tasks.isEmpty() ? block() : selector.selectNow(this::dispatch);
+                    parked = false;
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                    work++;
+                }
+                long now = System.nanoTime();
+                Timer next;
+                while ((next = timers.peek()) != null && next.deadlineNanos() - now <= 0) {
+                    timers.poll().task().run();
+                    work++;
+                }
+                idle = work == 0 ? idle + 1 : 0;
+            } catch (IOException | RuntimeException e) {
+                // One misbehaving session must not take the loop (and every other session) down with it.
+                loopThread.getUncaughtExceptionHandler().uncaughtException(loopThread, e);
+            }
+        }
+    }
+
+    private int block() throws IOException {
+        Timer next = timers.peek();
+        if (next == null) return selector.select(this::dispatch);
+        long waitNanos = next.deadlineNanos() - System.nanoTime();
+        // select(timeout) has millisecond resolution; sub-millisecond lingers poll instead.
+        if (waitNanos < 1_000_000) return selector.selectNow(this::dispatch);
+        return selector.select(this::dispatch, waitNanos / 1_000_000);
+    }
+
+    private void dispatch(SelectionKey key) {
+        ((NioSession) key.attachment()).handleEvent(key);
+    }
+}
@@ -0,0 +1,247 @@
+package Client;
+
+import Protocol.ChatMessage;
+import Protocol.MessageType;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Messages waiting to be written, in a preallocated lock-free {@link BoundedRing}. It belongs to
+ * whatever outlives a single connection, so lines queued during an outage, or drained by a
+ * session that died before writing them, are sent by the next session. Any thread may offer;
+ * sessions drain on their writer. The overflow paths take a {@link ReentrantLock} rather than a
+ * monitor, so a virtual thread that blocks there (spilling to disk, say) does not pin its carrier.
+ * <p>
+ * {@link #offer} never blocks: when the queue is full the {@link OverflowPolicy} decides between
+ * refusing the line, evicting the oldest, merging it into a pending overflow line, or spilling
+ * it to disk. Coalesced and spilled lines keep their place behind everything already queued,
+ * and later offers join them until they have drained.
+ * <p>
+ * On connections with acknowledgements, {@code CHAT} lines are numbered as they are drained and
+ * stay in flight until the server acknowledges them. If the session fails first they are handed
+ * back with their numbers, so the server can discard any copy it already relayed.
+ */
+public final class Outbox {
+    private static final LongAdder DROPPED = Metrics.shared().counter("chat_client_outbox_dropped_total",
+            "Queued lines dropped by the overflow policy.");
+    private static final LongAdder REFUSED = Metrics.shared().counter("chat_client_outbox_refused_total",
+            "Lines the overflow policy refused.");
+
+    private final BoundedRing<ChatMessage> queue;
+    private final OverflowPolicy policy;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock. Requeued lines go out before the queue; coalesced and spilled ones after it.
+    private final ArrayDeque<ChatMessage> requeued = new ArrayDeque<>();
+    private ChatMessage coalesced;
+    private SpillFile spill;
+    private int spilled;
+    private volatile boolean hasRequeued;
+    private volatile boolean overflowing;
+    // Session writer only.
+    private final ArrayDeque<ChatMessage> inFlight = new ArrayDeque<>();
+    private long lastSeq;
+
+    public Outbox(int capacity, OverflowPolicy policy) {
+        this.queue = new BoundedRing<>(capacity);
+        this.policy = policy;
+    }
+
+    /** Queues {@code m} without blocking; false means the overflow policy refused it. */
+    public boolean offer(ChatMessage m) {
+        if (!overflowing && queue.offer(m)) return true;
+        if (overflow(m)) return true;
+        REFUSED.increment();
+        return false;
+    }
+
+    private boolean overflow(ChatMessage m) {
+        switch (policy) {
+            case DROP_OLDEST -> {
+                while (!queue.offer(m)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                        DROPPED.increment();
+                    }
+                }
+                return true;
+            }
+            case COALESCE -> {
+                lock.lock();
+                try {
+                    return coalesce(m);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            case SPILL -> {
+                lock.lock();
+                try {
+                    return spill(m);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    /** Lines waiting to be written, including coalesced and spilled ones. */
+    public int size() {
+        if (!hasRequeued && !overflowing) return queue.size();
+        lock.lock();
+        try {
+            return requeued.size() + queue.size() + (coalesced != null ? 1 : 0) + spilled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return !hasRequeued && !overflowing && queue.isEmpty();
+    }
+
+    /** Lines evicted by {@link OverflowPolicy#DROP_OLDEST}, or lost with an unreadable spill file. */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    private boolean coalesce(ChatMessage m) {
+        if (coalesced == null) {
+            if (queue.offer(m)) return true;
+            coalesced = m;
+            overflowing = true;
+            return true;
+        }
+        ChatMessage c = coalesced;
+        if (m.type() != MessageType.CHAT || c.type() != MessageType.CHAT || !m.from().equals(c.from())
+                || !m.channel().equals(c.channel()) || c.body().length() + 1 + m.body().length() > ChatMessage.MAX_BODY) {
+            return false;
+        }
+        coalesced = new ChatMessage(c.type(), c.from(), c.timestamp(), c.body() + '\n' + m.body(), 0, c.channel());
+        return true;
+    }
+
+    private boolean spill(ChatMessage m) {
+        if (spilled == 0 && queue.offer(m)) return true;
+        try {
+            if (spill == null) spill = SpillFile.create();
+            spill.append(m);
+        } catch (IOException e) {
+            return false;
+        }
+        spilled++;
+        overflowing = true;
+        return true;
+    }
+
+    int drainTo(Collection<ChatMessage> to, int max) {
+        if (!hasRequeued && !overflowing) return queue.drainTo(to, max);
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < max && !requeued.isEmpty()) {
+                to.add(requeued.pollFirst());
+                n++;
+            }
+            hasRequeued = !requeued.isEmpty();
+            n += queue.drainTo(to, max - n);
+            if (n < max && coalesced != null) {
+                to.add(coalesced);
+                coalesced = null;
+                n++;
+            }
+            while (n < max && spilled > 0) {
+                ChatMessage m = unspill();
+                if (m == null) break;
+                to.add(m);
+                n++;
+            }
+            overflowing = coalesced != null || spilled > 0;
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ChatMessage unspill() {
+        ChatMessage m;
+        try {
+            m = spill.poll();
+        } catch (IOException e) {
+            m = null;
+        }
+        if (m == null) {
+            dropped.addAndGet(spilled);
+            DROPPED.add(spilled);
+            spilled = 0;
+        } else {
+            spilled--;
+        }
+        if (spilled == 0) {
+            try {
+                spill.close();
+            } catch (IOException ignored) {
+            }
+            spill = null;
+        }
+        return m;
+    }
+
+    /** Numbers {@code m} if it is a {@code CHAT} line that has not been numbered yet. */
+    ChatMessage number(ChatMessage m) {
+        return m.type() == MessageType.CHAT && m.seq() == 0 ? m.withSeq(++lastSeq) : m;
+    }
+
+    /** Records a numbered line as written and awaiting acknowledgement. */
+    void sent(ChatMessage m) {
+        if (m.seq() > 0) inFlight.add(m);
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    /** Releases every line numbered up to {@code seq}; returns whether any were in flight. */
+    boolean acknowledge(long seq) {
+        boolean released = false;
+        while (!inFlight.isEmpty() && inFlight.peekFirst().seq() <= seq) {
+            inFlight.pollFirst();
+            released = true;
+        }
+        return released;
+    }
+
+    /** Hands back unacknowledged lines, then {@code unsent}, to go out first on the next session. */
+    void rewind(List<ChatMessage> unsent) {
+        if (inFlight.isEmpty()) {
+            requeue(unsent);
+            return;
+        }
+        List<ChatMessage> all = new ArrayList<>(inFlight);
+        all.addAll(unsent);
+        inFlight.clear();
+        requeue(all);
+    }
+
+    /** Puts {@code unsent} back at the head, in order. May exceed the capacity. */
+    void requeue(List<ChatMessage> unsent) {
+        if (unsent.isEmpty()) return;
+        lock.lock();
+        try {
+            for (int i = unsent.size() - 1; i >= 0; i--) requeued.addFirst(unsent.get(i));
+            hasRequeued = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
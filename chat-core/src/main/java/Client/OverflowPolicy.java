@@ -0,0 +1,20 @@
+package Client;
+
+import java.util.Locale;
+
+/** What {@link Outbox#offer} does when the send queue is full. None of them block the caller. */
+public enum OverflowPolicy {
+    /** Refuse the new line; the caller decides what to tell the user. */
+    REJECT,
+    /** Evict the oldest queued line to make room. */
+    DROP_OLDEST,
+    /** Merge consecutive overflow lines from the same sender into one, up to the body limit. */
+    COALESCE,
+    /** Append overflow to a temporary file and send it, in order, once the queue drains. */
+    SPILL;
+
+    /** Parses {@code reject}, {@code drop-oldest}, {@code coalesce} or {@code spill}. */
+    public static OverflowPolicy fromName(String name) {
+        return valueOf(name.strip().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
@@ -0,0 +1,89 @@
+package Client;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts virtual threads pinned to their carrier, from the JDK's {@code jdk.VirtualThreadPinned}
+ * flight-recorder event. A virtual thread that blocks inside {@code synchronized} or a native
+ * frame holds its carrier for the duration, and every other virtual thread has one carrier less.
+ * Each event is charged to the first frame outside the JDK, so {@link #sites} says whose code to fix.
+ */
+public final class PinningMonitor implements AutoCloseable {
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private final RecordingStream stream = new RecordingStream();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final Map<String, LongAdder> sites = new ConcurrentHashMap<>();
+
+    private PinningMonitor() {
+    }
+
+    /** Starts recording pins that last at least {@code threshold}. */
+    public static PinningMonitor start(Duration threshold) {
+        PinningMonitor m = new PinningMonitor();
+        m.stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        m.stream.onEvent(EVENT, m::record);
+        // startAsync() would use a non-daemon thread and keep the JVM alive.
+        Thread.ofPlatform().daemon().name("PinningMonitor").start(m.stream::start);
+        return m;
+    }
+
+    public long events() {
+        return events.sum();
+    }
+
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /** Up to {@code limit} pinning sites, most frequent first. */
+    public Map<String, Long> sites(int limit) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        sites.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(limit)
+                .forEach(e -> top.put(e.getKey(), e.getValue().sum()));
+        return top;
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    private void record(RecordedEvent e) {
+        long nanos = e.getDuration().toNanos();
+        events.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        sites.computeIfAbsent(site(e), _ -> new LongAdder()).increment();
+    }
+
+    private static String site(RecordedEvent e) {
+        if (e.getStackTrace() == null) return "?";
+        List<RecordedFrame> frames = e.getStackTrace().getFrames();
+        for (RecordedFrame f : frames) {
+            String type = f.getMethod().getType().getName();
+            if (type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.")) continue;
+            return type + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+        }
+        return frames.isEmpty() ? "?" : frames.get(0).getMethod().getType().getName();
+    }
+}
@@ -0,0 +1,276 @@
+package Client;
+
+import Protocol.Capabilities;
+import Protocol.ChatMessage;
+import Protocol.Frame;
+import Protocol.Framing;
+import Protocol.MessageType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps one logical connection alive across socket drops. When a session closes without being
+ * asked to, it reconnects with jittered exponential backoff, resuming with the token and last
+ * broadcast sequence number from the previous session so the server replays the gap. Messages
+ * offered meanwhile wait in a shared {@link Outbox}; replayed duplicates are dropped by sequence.
+ * Lines the server never acknowledged are sent again with their original numbers, and the
+ * server drops any it had already relayed, so each line is delivered once.
+ * <p>
+ * Rooms joined through {@link #joinRoom} are offered again in every reconnect's handshake, so the
+ * server puts the session back in them before replaying what it missed there. Rooms beyond what
+ * fits in the handshake are rejoined with {@code JOIN}s ahead of any queued line, without replay.
+ * <p>
+ * With {@link SessionOptions#pingIntervalMillis()} set, a server that stops answering is noticed
+ * within a few intervals and handled like any other drop.
+ * <p>
+ * Listener callbacks arrive on the transport's threads, as with a plain {@link ChatSession}.
+ * Only the initial connect reports failure through its future; after that, giving up (a
+ * rejected resume, or {@link #leave()}/{@link #close()}, even mid-backoff) is reported once
+ * through {@link SessionListener#onClosed}, with the last session or null if there never was one.
+ */
+public final class ReconnectSupervisor implements SessionListener {
+    private static final long BASE_DELAY_MS = 250;
+    private static final long MAX_DELAY_MS = 30_000;
+    // Keeps the handshake JOIN well inside the server's read buffer.
+    private static final int MAX_ROOMS_BYTES = 8 * 1024;
+    private static final LongAdder RECONNECTS = Metrics.shared().counter("chat_client_reconnects_total",
+            "Reconnect attempts after a drop.");
+
+    private final Transport transport;
+    private final String host;
+    private final int port;
+    private final String nickname;
+    private final SessionOptions options;
+    private final SessionListener listener;
+    private final Outbox outbox;
+    private final Set<String> rooms = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean closeReported = new AtomicBoolean();
+    private volatile ChatSession current;
+    private volatile ChatSession last;
+    private volatile boolean stopped;
+    private volatile Framing framing = Framing.TEXT;
+    // Resume state, touched by handshake completion, frames and closes. Those never overlap, but
+    // on a threaded transport successive sessions run them on different threads.
+    private volatile String epoch;
+    private volatile String token;
+    private volatile long lastSeq;
+    private volatile int attempt;
+    // Rooms the pending attempt could not list in its handshake.
+    private volatile List<String> overflow = List.of();
+
+    public ReconnectSupervisor(Transport transport, String host, int port, String nickname,
+                               SessionOptions options, SessionListener listener) {
+        this.transport = transport;
+        this.host = host;
+        this.port = port;
+        this.nickname = nickname;
+        this.options = options;
+        this.listener = listener;
+        this.outbox = new Outbox(options.sendCapacity(), options.overflow());
+    }
+
+    public CompletableFuture<ChatSession> start() {
+        return connect();
+    }
+
+    public String nickname() {
+        return nickname;
+    }
+
+    /** Framing of the most recent session; messages queued during an outage are sanitized for it. */
+    public Framing framing() {
+        return framing;
+    }
+
+    public boolean isConnected() {
+        ChatSession s = current;
+        return s != null && s.isOpen();
+    }
+
+    /** Whether the server accepted {@code channels}, i.e. {@link #joinRoom} does anything. */
+    public boolean hasRooms() {
+        ChatSession s = last;
+        return s != null && s.accepted().isSet(Capabilities.CHANNELS);
+    }
+
+    /** Rooms joined and not left; rejoined on every reconnect. */
+    public Set<String> rooms() {
+        return Collections.unmodifiableSet(rooms);
+    }
+
+    /** Joins {@code room} now, or on reconnecting; false if it is not a room name or the line was refused. */
+    public boolean joinRoom(String room) {
+        if (!ChatMessage.isRoomName(room) || stopped) return false;
+        if (!rooms.add(room)) return true;
+        if (offer(new ChatMessage(MessageType.JOIN, nickname, System.currentTimeMillis(), "", 0, room))) return true;
+        rooms.remove(room);
+        return false;
+    }
+
+    public boolean leaveRoom(String room) {
+        if (!rooms.remove(room)) return false;
+        return offer(new ChatMessage(MessageType.LEAVE, nickname, System.currentTimeMillis(), "", 0, room));
+    }
+
+    /** Round trips measured by the current session, or the last one while reconnecting. */
+    public RttStats.Snapshot rtt() {
+        ChatSession s = last;
+        return s == null ? RttStats.Snapshot.EMPTY : s.rtt().snapshot();
+    }
+
+    /** Lines waiting to be written, including any queued while disconnected. */
+    public int pending() {
+        return outbox.size();
+    }
+
+    public long dropped() {
+        return outbox.dropped();
+    }
+
+    /** Never blocks; false means the overflow policy refused {@code m}. */
+    public boolean offer(ChatMessage m) {
+        if (stopped) return false;
+        boolean ok = outbox.offer(m);
+        ChatSession s = current;
+        if (ok && s != null) s.scheduleFlush();
+        return ok;
+    }
+
+    public void leave() {
+        stopped = true;
+        ChatSession s = current;
+        if (s != null) s.leave();
+        else closedBetweenSessions();
+    }
+
+    public void close() {
+        stopped = true;
+        ChatSession s = current;
+        if (s != null) s.close();
+        else closedBetweenSessions();
+    }
+
+    @Override
+    public void onFrame(ChatSession session, Frame frame) {
+        if (session != current) return;
+        long seq = frame.seq();
+        if (seq > 0) {
+            if (seq <= lastSeq) return;
+            lastSeq = seq;
+        }
+        listener.onFrame(session, frame);
+    }
+
+    @Override
+    public void onClosed(ChatSession session, IOException cause) {
+        if (session != current) return;
+        current = null;
+        if (stopped) {
+            reportClosed(session, cause);
+            return;
+        }
+        scheduleReconnect(cause);
+    }
+
+    // Stopped during a backoff: the pending reconnect does nothing once it runs, so nothing else
+    // would report the close. An attempt already connecting closes its session when it completes.
+    private void closedBetweenSessions() {
+        transport.runLater(0, () -> reportClosed(last, null));
+    }
+
+    // Each way of giving up can race another; the listener hears about exactly one.
+    private void reportClosed(ChatSession session, IOException cause) {
+        if (closeReported.compareAndSet(false, true)) listener.onClosed(session, cause);
+    }
+
+    private CompletableFuture<ChatSession> connect() {
+        Capabilities extra = Capabilities.none().with(Capabilities.SEQ, "1").with(Capabilities.ACK, "1")
+                .with(Capabilities.CHANNELS, "1");
+        List<String> overflow = new ArrayList<>();
+        if (!rooms.isEmpty()) {
+            StringBuilder listed = new StringBuilder();
+            for (String room : rooms) {
+                if (listed.length() + room.length() + 1 <= MAX_ROOMS_BYTES) {
+                    if (!listed.isEmpty()) listed.append(',');
+                    listed.append(room);
+                } else {
+                    overflow.add(room);
+                }
+            }
+            extra.with(Capabilities.ROOMS, listed.toString());
+        }
+        if (token != null) {
+            extra.with(Capabilities.TOKEN, token)
+                    .with(Capabilities.EPOCH, epoch)
+                    .with(Capabilities.RESUME, Long.toString(lastSeq));
+        }
+        // Attempts never overlap, so this is the one onOpened will see.
+        this.overflow = overflow;
+        return transport.connect(host, port, nickname, options, extra, outbox, this);
+    }
+
+    // Runs on the reading thread as the handshake completes, before any replayed frame is read.
+    @Override
+    public void onOpened(ChatSession s) {
+        Capabilities caps = s.accepted();
+        String newEpoch = caps.get(Capabilities.EPOCH);
+        if (newEpoch == null || !newEpoch.equals(epoch)) lastSeq = 0;
+        epoch = newEpoch;
+        token = caps.get(Capabilities.TOKEN);
+        framing = s.framing();
+        attempt = 0;
+        current = s;
+        last = s;
+        if (stopped) {
+            s.close();
+            return;
+        }
+        if (!overflow.isEmpty()) {
+            // Queued only once a handshake succeeds, so failed attempts do not pile up JOINs. The
+            // session has not started draining yet, so these go out ahead of any queued line.
+            List<ChatMessage> rejoin = new ArrayList<>(overflow.size());
+            long now = System.currentTimeMillis();
+            for (String room : overflow) rejoin.add(new ChatMessage(MessageType.JOIN, nickname, now, "", 0, room));
+            outbox.requeue(rejoin);
+        }
+    }
+
+    private void scheduleReconnect(IOException cause) {
+        attempt++;
+        RECONNECTS.increment();
+        long ceiling = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(attempt - 1, 16));
+        // Half fixed, half random: spreads out clients that dropped together without ever retrying at once.
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        listener.onReconnecting(cause, attempt, delay);
+        transport.runLater(delay, this::reconnect);
+    }
+
+    private void reconnect() {
+        if (stopped) return;
+        connect().whenComplete((s, err) -> {
+            if (err == null) {
+                if (!stopped) listener.onReconnected(s);
+                return;
+            }
+            Throwable t = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+            IOException cause = t instanceof IOException io ? io : new IOException(t);
+            if (stopped) return;
+            if (cause instanceof RejectedException) {
+                stopped = true;
+                reportClosed(last, cause);
+                return;
+            }
+            scheduleReconnect(cause);
+        });
+    }
+}
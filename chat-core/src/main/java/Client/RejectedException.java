@@ -0,0 +1,10 @@
+package Client;
+
+import java.io.IOException;
+
+/** The server refused the JOIN, e.g. because the nickname is taken; retrying will not help. */
+public class RejectedException extends IOException {
+    public RejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,48 @@
+package Client;
+
+import java.util.Arrays;
+
+/**
+ * Round-trip times of the last {@link #WINDOW} {@code PING}s, so the figures follow the current
+ * path rather than the whole connection. Recorded by the reading thread, read from anywhere.
+ */
+public final class RttStats {
+    static final int WINDOW = 128;
+
+    /** Figures in nanoseconds over the last {@code samples} round trips; all 0 if there were none. */
+    public record Snapshot(int samples, long lastNanos, long minNanos, long avgNanos, long p99Nanos) {
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0);
+    }
+
+    private final long[] window = new long[WINDOW];
+    private int count;
+    private int next;
+    private long last;
+
+    RttStats() {
+    }
+
+    synchronized void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        window[next] = nanos;
+        next = (next + 1) % WINDOW;
+        if (count < WINDOW) count++;
+        last = nanos;
+    }
+
+    public Snapshot snapshot() {
+        long[] copy;
+        long lastNanos;
+        synchronized (this) {
+            if (count == 0) return Snapshot.EMPTY;
+            copy = Arrays.copyOf(window, count);
+            lastNanos = last;
+        }
+        Arrays.sort(copy);
+        long sum = 0;
+        for (long v : copy) sum += v;
+        int n = copy.length;
+        int p99 = Math.min(n - 1, (int) Math.ceil(n * 0.99) - 1);
+        return new Snapshot(n, lastNanos, copy[0], sum / n, copy[p99]);
+    }
+}
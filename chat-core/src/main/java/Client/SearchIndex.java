@@ -0,0 +1,136 @@
+package Client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over chat lines: each lower-cased word, and each sender under {@code from:},
+ * maps to the ids of the documents containing it, kept as a sorted {@code int[]} that documents
+ * are appended to in id order. Every query word matches as a prefix; a query matches documents
+ * that match all of its words. Matching ORs the posting lists of each word into a bitmap and ANDs
+ * the bitmaps, so cost follows the postings touched, not the text indexed. Not thread-safe.
+ */
+final class SearchIndex {
+    static final String FROM = "from:";
+    private static final int MAX_TERM = 32;
+    // Sender terms sort apart from words and cannot be typed as one.
+    private static final char NICK = '\u0001';
+
+    private static final class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) return;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+
+    // The same postings twice: hashed for indexing, which mostly meets known terms, sorted for prefixes.
+    private final HashMap<String, Postings> byTerm = new HashMap<>();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final StringBuilder word = new StringBuilder(MAX_TERM);
+    private long[] refs = new long[1024];
+    private int docs;
+
+    /** Indexes a line and returns its id; {@code ref} is whatever the caller needs to find it again. */
+    int add(long ref, String from, String body) {
+        int id = docs;
+        if (id == refs.length) refs = Arrays.copyOf(refs, id * 2);
+        refs[id] = ref;
+        docs++;
+        postings(NICK + from.toLowerCase(Locale.ROOT)).add(id);
+        int n = body.length();
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? body.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (word.length() < MAX_TERM) word.append(Character.toLowerCase(c));
+            } else if (!word.isEmpty()) {
+                postings(word.toString()).add(id);
+                word.setLength(0);
+            }
+        }
+        return id;
+    }
+
+    long ref(int id) {
+        return refs[id];
+    }
+
+    int size() {
+        return docs;
+    }
+
+    /** Ids of up to {@code max} documents matching {@code query}, newest first. */
+    int[] search(String query, int max) {
+        long[] hits = null;
+        long[] group = null;
+        for (String term : terms(query)) {
+            NavigableMap<String, Postings> matches = terms.subMap(term, true, term + Character.MAX_VALUE, false);
+            if (matches.isEmpty()) return new int[0];
+            if (group == null) group = new long[(docs + 63) >>> 6];
+            else Arrays.fill(group, 0);
+            for (Postings p : matches.values()) {
+                int[] ids = p.ids;
+                for (int i = 0; i < p.size; i++) group[ids[i] >>> 6] |= 1L << ids[i];
+            }
+            if (hits == null) {
+                hits = group;
+                group = null;
+            } else {
+                for (int i = 0; i < hits.length; i++) hits[i] &= group[i];
+            }
+        }
+        if (hits == null) return new int[0];
+        int[] out = new int[Math.min(max, docs)];
+        int n = 0;
+        for (int i = hits.length - 1; i >= 0 && n < out.length; i--) {
+            long bits = hits[i];
+            while (bits != 0 && n < out.length) {
+                int b = 63 - Long.numberOfLeadingZeros(bits);
+                out[n++] = i << 6 | b;
+                bits &= ~(1L << b);
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private Postings postings(String term) {
+        Postings p = byTerm.get(term);
+        if (p == null) {
+            p = new Postings();
+            byTerm.put(term, p);
+            terms.put(term, p);
+        }
+        return p;
+    }
+
+    // Query words are cut and folded the way indexed words were, a char at a time, so "don't",
+    // a long word or one whose lower case is longer (U+0130) still finds itself.
+    private static List<String> terms(String query) {
+        List<String> out = new ArrayList<>();
+        for (String w : query.split("\\s+")) {
+            if (w.regionMatches(true, 0, FROM, 0, FROM.length())) {
+                if (w.length() > FROM.length()) out.add(NICK + w.substring(FROM.length()).toLowerCase(Locale.ROOT));
+                continue;
+            }
+            StringBuilder sb = new StringBuilder(MAX_TERM);
+            for (int i = 0; i <= w.length(); i++) {
+                char c = i < w.length() ? w.charAt(i) : ' ';
+                if (Character.isLetterOrDigit(c)) {
+                    if (sb.length() < MAX_TERM) sb.append(Character.toLowerCase(c));
+                } else if (!sb.isEmpty()) {
+                    out.add(sb.toString());
+                    sb.setLength(0);
+                }
+            }
+        }
+        return out;
+    }
+}
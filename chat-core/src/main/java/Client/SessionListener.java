@@ -0,0 +1,37 @@
+package Client;
+
+import Protocol.Frame;
+
+import java.io.IOException;
+
+/**
+ * Callbacks from a {@link ChatSession}. They run on the transport's event loop thread, or on a
+ * threaded transport the session's own reader or writer, so implementations must hand work off
+ * (e.g. to the EDT) instead of blocking. Callbacks for one session never overlap.
+ */
+public interface SessionListener {
+
+    /** {@code frame} is reused for the next line; copy with {@link Frame#toMessage()} to keep it. */
+    void onFrame(ChatSession session, Frame frame);
+
+    /**
+     * The handshake succeeded. Runs on the reading thread before the next frame is dispatched and
+     * before the connect future completes, so state set here is in place for a replay.
+     */
+    default void onOpened(ChatSession session) {
+    }
+
+    /** {@code cause} is null when the session was closed locally or by an orderly server shutdown. */
+    void onClosed(ChatSession session, IOException cause);
+
+    /**
+     * Sent by a {@link ReconnectSupervisor} when its connection drops; the next attempt starts in
+     * {@code delayMillis}. Queued messages are kept. {@code cause} is null for an orderly close.
+     */
+    default void onReconnecting(IOException cause, int attempt, long delayMillis) {
+    }
+
+    /** A reconnect succeeded; anything missed is replayed through {@link #onFrame} next. */
+    default void onReconnected(ChatSession session) {
+    }
+}
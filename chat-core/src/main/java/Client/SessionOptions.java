@@ -0,0 +1,73 @@
+package Client;
+
+import Protocol.Compression;
+import Protocol.Framing;
+import Protocol.Tls;
+
+/**
+ * Per-session tuning. {@code maxBatch} caps how many queued lines are coalesced into a single
+ * socket write; {@code maxLingerMicros} lets a partial batch wait briefly for more lines.
+ * {@code framing} is offered in the handshake; the server may fall back to text.
+ * {@code maxInFlight} bounds lines written but not yet acknowledged, on connections that
+ * negotiated acknowledgements. {@code sendCapacity} sizes the {@link Outbox} and {@code overflow}
+ * says what happens to lines offered when it is full. {@code compression} is offered in the
+ * handshake like {@code framing}; the server may decline it. {@code tls}, if not null, secures
+ * the connection before the handshake; sessions that share one resume each other's TLS sessions.
+ * {@code pingIntervalMillis}, if positive, offers {@code ping}; if the server accepts, the session
+ * pings it that often, tracks round-trip times and gives up on a server it has not heard from
+ * in {@link ChatSession#MISSED_PINGS} intervals.
+ */
+public record SessionOptions(int maxBatch, long maxLingerMicros, Framing framing, int maxInFlight,
+                             int sendCapacity, OverflowPolicy overflow, Compression compression,
+                             Tls tls, long pingIntervalMillis) {
+
+    public static final SessionOptions DEFAULTS =
+            new SessionOptions(64, 0, Framing.TEXT, 256, 200, OverflowPolicy.REJECT, Compression.NONE, null, 0);
+
+    public SessionOptions {
+        if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be >= 1");
+        if (maxLingerMicros < 0) throw new IllegalArgumentException("maxLingerMicros must be >= 0");
+        if (framing == null) throw new IllegalArgumentException("framing must not be null");
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be >= 1");
+        if (sendCapacity < 1) throw new IllegalArgumentException("sendCapacity must be >= 1");
+        if (overflow == null) throw new IllegalArgumentException("overflow must not be null");
+        if (compression == null) throw new IllegalArgumentException("compression must not be null");
+        if (pingIntervalMillis < 0) throw new IllegalArgumentException("pingIntervalMillis must be >= 0");
+    }
+
+    public SessionOptions withMaxBatch(int maxBatch) {
+        return new SessionOptions(maxBatch, maxLingerMicros, framing, maxInFlight, sendCapacity, overflow, compression, tls, pingIntervalMillis);
+    }
+
+    public SessionOptions withMaxLingerMicros(long maxLingerMicros) {
+        return new SessionOptions(maxBatch, maxLingerMicros, framing, maxInFlight, sendCapacity, overflow, compression, tls, pingIntervalMillis);
+    }
+
+    public SessionOptions withFraming(Framing framing) {
+        return new SessionOptions(maxBatch, maxLingerMicros, framing, maxInFlight, sendCapacity, overflow, compression, tls, pingIntervalMillis);
+    }
+
+    public SessionOptions withMaxInFlight(int maxInFlight) {
+        return new SessionOptions(maxBatch, maxLingerMicros, framing, maxInFlight, sendCapacity, overflow, compression, tls, pingIntervalMillis);
+    }
+
+    public SessionOptions withSendCapacity(int sendCapacity) {
+        return new SessionOptions(maxBatch, maxLingerMicros, framing, maxInFlight, sendCapacity, overflow, compression, tls, pingIntervalMillis);
+    }
+
+    public SessionOptions withOverflow(OverflowPolicy overflow) {
+        return new SessionOptions(maxBatch, maxLingerMicros, framing, maxInFlight, sendCapacity, overflow, compression, tls, pingIntervalMillis);
+    }
+
+    public SessionOptions withCompression(Compression compression) {
+        return new SessionOptions(maxBatch, maxLingerMicros, framing, maxInFlight, sendCapacity, overflow, compression, tls, pingIntervalMillis);
+    }
+
+    public SessionOptions withTls(Tls tls) {
+        return new SessionOptions(maxBatch, maxLingerMicros, framing, maxInFlight, sendCapacity, overflow, compression, tls, pingIntervalMillis);
+    }
+
+    public SessionOptions withPingIntervalMillis(long pingIntervalMillis) {
+        return new SessionOptions(maxBatch, maxLingerMicros, framing, maxInFlight, sendCapacity, overflow, compression, tls, pingIntervalMillis);
+    }
+}
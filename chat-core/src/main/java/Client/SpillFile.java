@@ -0,0 +1,67 @@
+package Client;
+
+import Protocol.BinaryDecoder;
+import Protocol.BinaryEncoder;
+import Protocol.ChatMessage;
+import Protocol.Frame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FIFO of messages in a temporary file, stored in the binary wire framing. Appends go to the
+ * end and reads stream from the front through a small buffer. The file is deleted on close.
+ * Not thread-safe.
+ */
+final class SpillFile implements Closeable {
+    private final FileChannel channel;
+    // With channels, so lines for rooms come back addressed to them.
+    private final BinaryEncoder encoder = new BinaryEncoder(false, true);
+    private final BinaryDecoder decoder = new BinaryDecoder(false, true);
+    private final ByteBuffer writeBuf = ByteBuffer.allocate(4 * 1024);
+    private final ByteBuffer readBuf = ByteBuffer.allocate(16 * 1024).flip();
+    private long writePos;
+    private long fetchPos;
+
+    private SpillFile(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static SpillFile create() throws IOException {
+        Path path = Files.createTempFile("chat-outbox-", ".spill");
+        path.toFile().deleteOnExit();
+        return new SpillFile(FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE));
+    }
+
+    void append(ChatMessage m) throws IOException {
+        writeBuf.clear();
+        if (!encoder.encode(m, writeBuf)) throw new IOException("Message too large to spill.");
+        writeBuf.flip();
+        while (writeBuf.hasRemaining()) writePos += channel.write(writeBuf, writePos);
+    }
+
+    /** Next message in append order, or null if every appended message has been read. */
+    ChatMessage poll() throws IOException {
+        while (true) {
+            Frame f = decoder.decode(readBuf);
+            if (f != null) return f.toMessage();
+            if (fetchPos >= writePos) return null;
+            readBuf.compact();
+            int n = channel.read(readBuf, fetchPos);
+            readBuf.flip();
+            if (n <= 0) throw new IOException("Spill file truncated.");
+            fetchPos += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,158 @@
+package Client;
+
+import Protocol.Capabilities;
+import Protocol.TlsChannel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ChatSession} on a {@link ThreadedTransport}: a blocking channel with one thread
+ * reading and one writing. The writer connects, sets up TLS if asked to, starts the reader, and when the session closes
+ * waits for the reader to finish before handing lines back and reporting the close, so callbacks
+ * for one session never overlap.
+ */
+final class ThreadedSession extends ChatSession {
+    private final InetSocketAddress address;
+    private final ThreadFactory readers;
+    private final Thread writer;
+    private Thread reader;
+    private volatile boolean signalled;
+    private volatile boolean done;
+    private long lingerDeadline;
+    private State closedFrom;
+    private IOException closeCause;
+
+    ThreadedSession(SocketChannel channel, TlsChannel tls, InetSocketAddress address, ThreadFactory readers, ThreadFactory writers,
+                    String nickname, SessionOptions options, Capabilities extraCapabilities, Outbox outbox,
+                    SessionListener listener) {
+        super(channel, tls, nickname, options, extraCapabilities, outbox, listener);
+        this.address = address;
+        this.readers = readers;
+        this.writer = writers.newThread(this::writeLoop);
+    }
+
+    void start() {
+        writer.start();
+    }
+
+    @Override
+    void scheduleFlush() {
+        if (!signalled) {
+            signalled = true;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            channel.connect(address);
+            // Blocking, so it runs to the end.
+            if (tls != null) tls.handshake();
+            beginHandshake();
+            writeOut();
+            reader = readers.newThread(this::readLoop);
+            reader.start();
+            while (!done) {
+                // Cleared before looking for work, so a signal raised meanwhile forces another pass.
+                signalled = false;
+                long heartbeat = heartbeat();
+                if (!flushOnce() && !signalled && !done) {
+                    if (heartbeat > 0) LockSupport.parkNanos(this, heartbeat);
+                    else LockSupport.park(this);
+                }
+            }
+        } catch (IOException e) {
+            close(e);
+        } catch (RuntimeException e) {
+            close(new IOException(e));
+        } finally {
+            while (!done) LockSupport.park(this);
+            if (reader != null) awaitReader();
+            finish(closedFrom, closeCause, true);
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (!done) {
+                if (read(inbound.readTarget()) < 0) {
+                    close(state == State.OPEN ? null : new IOException("Server closed connection during handshake."));
+                    return;
+                }
+                if (readFrames()) scheduleFlush();
+            }
+        } catch (IOException e) {
+            close(e);
+        } catch (RuntimeException e) {
+            close(new IOException(e));
+        }
+    }
+
+    /** Writes whatever is ready; false if there was nothing, i.e. the writer may park. */
+    private boolean flushOnce() throws IOException {
+        if (state != State.OPEN) return false;
+        long linger = lingerNanos();
+        if (linger > 0) {
+            LockSupport.parkNanos(this, linger);
+            return true;
+        }
+        fillBatch();
+        if (!hasUnwritten()) {
+            if (leaveComplete()) close(null);
+            return false;
+        }
+        writeOut();
+        return true;
+    }
+
+    private void writeOut() throws IOException {
+        ByteBuffer out = outbound();
+        out.flip();
+        while (out.hasRemaining()) write(out);
+        out.clear();
+    }
+
+    /** How long a partial batch should still wait for more lines; 0 to write now. */
+    private long lingerNanos() {
+        if (lingerNanos == 0 || closeAfterFlush || batchIndex < batch.size()) return 0;
+        int queued = outbox.size();
+        if (queued == 0 || queued >= maxBatch) {
+            lingerDeadline = 0;
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (lingerDeadline == 0) lingerDeadline = now + lingerNanos;
+        long remaining = lingerDeadline - now;
+        if (remaining > 0) return remaining;
+        lingerDeadline = 0;
+        return 0;
+    }
+
+    private void awaitReader() {
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    void opened() {
+        // The writer parks without a deadline until it learns it has heartbeats to send.
+        scheduleFlush();
+    }
+
+    @Override
+    void closed(State was, IOException cause) {
+        closedFrom = was;
+        closeCause = cause;
+        // The closed channel has already kicked the reader and writer out of any blocking call.
+        done = true;
+        LockSupport.unpark(writer);
+    }
+}
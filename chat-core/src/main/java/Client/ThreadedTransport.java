@@ -0,0 +1,74 @@
+package Client;
+
+import Protocol.Capabilities;
+import Protocol.TlsChannel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every {@link ChatSession} its own blocking reader and writer thread, so the I/O code is
+ * plain sequential reads and writes. On virtual threads a JVM holds tens of thousands of
+ * sessions this way; platform threads are there to compare against. Virtual-thread transports
+ * report carrier pinning through {@link #pinning()}.
+ */
+public final class ThreadedTransport extends Transport {
+    private static final Duration PINNING_THRESHOLD = Duration.ofMillis(1);
+
+    private final boolean virtualThreads;
+    private final ThreadFactory readers;
+    private final ThreadFactory writers;
+    private final PinningMonitor pinning;
+
+    public ThreadedTransport(String name, boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        if (virtualThreads) {
+            readers = Thread.ofVirtual().name(name + "Reader-", 0).factory();
+            writers = Thread.ofVirtual().name(name + "Writer-", 0).factory();
+            pinning = PinningMonitor.start(PINNING_THRESHOLD);
+        } else {
+            readers = Thread.ofPlatform().daemon().name(name + "Reader-", 0).factory();
+            writers = Thread.ofPlatform().daemon().name(name + "Writer-", 0).factory();
+            pinning = null;
+        }
+    }
+
+    public boolean virtualThreads() {
+        return virtualThreads;
+    }
+
+    /** Pinning seen since this transport started; null on platform threads. */
+    public PinningMonitor pinning() {
+        return pinning;
+    }
+
+    @Override
+    CompletableFuture<ChatSession> connect(String host, int port, String nick, SessionOptions options,
+                                           Capabilities extra, Outbox outbox, SessionListener listener) {
+        ThreadedSession session;
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            TlsChannel tls = options.tls() == null ? null : options.tls().open(channel, host, port);
+            session = new ThreadedSession(channel, tls, new InetSocketAddress(host, port), readers, writers,
+                    nick, options, extra, outbox, listener);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        session.start();
+        CompletableFuture.delayedExecutor(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS).execute(session::handshakeTimedOut);
+        return session.handshake();
+    }
+
+    @Override
+    void runLater(long delayMillis, Runnable task) {
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(task);
+    }
+}
@@ -0,0 +1,71 @@
+package Client;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+
+/**
+ * Formats epoch millis with a localized time-of-day pattern, reusing work across calls: the
+ * same second returns the cached String, and a new second within the same minute only patches
+ * the two seconds digits of the cached minute template. Falls back to the formatter whenever the
+ * pattern has no patchable two-digit seconds field. Not thread-safe.
+ */
+public final class TimestampCache {
+    private final DateTimeFormatter formatter;
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedText;
+    private long cachedMinute = Long.MIN_VALUE;
+    private char[] minuteTemplate;
+    private int secondsPos = -1;
+
+    public TimestampCache(DateTimeFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    public static TimestampCache localizedMedium() {
+        return new TimestampCache(DateTimeFormatter.ofLocalizedTime(FormatStyle.MEDIUM).withZone(ZoneId.systemDefault()));
+    }
+
+    public String format(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000);
+        if (second == cachedSecond) return cachedText;
+        long minute = Math.floorDiv(second, 60);
+        if (minute != cachedMinute) loadMinute(minute);
+        String text;
+        if (secondsPos < 0) {
+            text = formatter.format(Instant.ofEpochSecond(second));
+        } else {
+            int s = (int) (second - minute * 60);
+            minuteTemplate[secondsPos] = (char) ('0' + s / 10);
+            minuteTemplate[secondsPos + 1] = (char) ('0' + s % 10);
+            text = new String(minuteTemplate);
+        }
+        cachedSecond = second;
+        cachedText = text;
+        return text;
+    }
+
+    // With a whole-minute zone offset a minute's rendering changes only in the seconds field.
+    // Locate it by diffing :10 against :21; anything else (odd offsets, unpadded or localized
+    // digits) leaves secondsPos at -1 and every new second goes through the formatter.
+    private void loadMinute(long minute) {
+        cachedMinute = minute;
+        String a = formatter.format(Instant.ofEpochSecond(minute * 60 + 10));
+        String b = formatter.format(Instant.ofEpochSecond(minute * 60 + 21));
+        secondsPos = -1;
+        minuteTemplate = null;
+        if (a.length() != b.length()) return;
+        int first = -1;
+        int diffs = 0;
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                if (first < 0) first = i;
+                diffs++;
+            }
+        }
+        if (diffs != 2 || first + 1 >= a.length() || a.charAt(first) != '1' || a.charAt(first + 1) != '0') return;
+        secondsPos = first;
+        minuteTemplate = a.toCharArray();
+    }
+}
@@ -0,0 +1,45 @@
+package Client;
+
+import Protocol.Capabilities;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Drives {@link ChatSession}s. {@link NioTransport} multiplexes any number of them on one
+ * selector thread; {@link ThreadedTransport} gives each session a blocking reader and writer,
+ * on virtual or platform threads.
+ */
+public abstract class Transport {
+    static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private static final class Shared {
+        static final Transport INSTANCE = switch (System.getProperty("chat.transport", "nio")) {
+            case "virtual" -> new ThreadedTransport("Chat", true);
+            case "platform" -> new ThreadedTransport("Chat", false);
+            default -> NioTransport.shared();
+        };
+    }
+
+    Transport() {
+    }
+
+    /** The transport named by {@code chat.transport}: {@code nio} (default), {@code virtual} or {@code platform}. */
+    public static Transport shared() {
+        return Shared.INSTANCE;
+    }
+
+    public CompletableFuture<ChatSession> connect(String host, int port, String nick, SessionListener listener) {
+        return connect(host, port, nick, SessionOptions.DEFAULTS, listener);
+    }
+
+    public CompletableFuture<ChatSession> connect(String host, int port, String nick,
+                                                  SessionOptions options, SessionListener listener) {
+        return connect(host, port, nick, options, Capabilities.none(), new Outbox(options.sendCapacity(), options.overflow()), listener);
+    }
+
+    abstract CompletableFuture<ChatSession> connect(String host, int port, String nick, SessionOptions options,
+                                                    Capabilities extra, Outbox outbox, SessionListener listener);
+
+    /** Runs {@code task} once, {@code delayMillis} from now. */
+    abstract void runLater(long delayMillis, Runnable task);
+}
@@ -0,0 +1,51 @@
+package Client;
+
+import java.util.Locale;
+
+/**
+ * How an event loop waits when a pass found nothing to do. Blocking costs a wakeup syscall per
+ * hand-off and the scheduler's latency; spinning trades a core for lower hand-off latency.
+ */
+public enum WaitStrategy {
+    /** Block at once; producers wake the loop. */
+    PARK,
+    /** Spin briefly, then yield, then block. */
+    SPIN_YIELD,
+    /** Never block. Dedicates a core to the loop. */
+    BUSY_SPIN;
+
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+
+    /**
+     * Called after the {@code idle}th consecutive empty pass (starting at 1). Returns true after
+     * briefly pausing if the caller should poll again, false if it should block now.
+     */
+    public boolean idle(int idle) {
+        switch (this) {
+            case BUSY_SPIN -> {
+                Thread.onSpinWait();
+                return true;
+            }
+            case SPIN_YIELD -> {
+                if (idle <= SPINS) {
+                    Thread.onSpinWait();
+                    return true;
+                }
+                if (idle <= SPINS + YIELDS) {
+                    Thread.yield();
+                    return true;
+                }
+                return false;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    /** Parses {@code park}, {@code spin-yield} or {@code busy-spin}. */
+    public static WaitStrategy fromName(String name) {
+        return valueOf(name.strip().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
@@ -0,0 +1,9 @@
+/** Headless client runtime; {@link Client.ChatClient} is its API. */
+module chat.core {
+    requires transitive chat.protocol;
+    requires java.management;
+    requires jdk.httpserver;
+    requires jdk.jfr;
+
+    exports Client;
+}
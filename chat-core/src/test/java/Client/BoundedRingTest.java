@@ -0,0 +1,102 @@
+package Client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedRingTest {
+    private static final int PRODUCERS = 4;
+    private static final int CONSUMERS = 2;
+    private static final int PER_PRODUCER = 100_000;
+
+    @Test
+    void isFifoAndBoundedAcrossLaps() {
+        BoundedRing<Integer> ring = new BoundedRing<>(3);
+        for (int lap = 0; lap < 5; lap++) {
+            for (int i = 0; i < 3; i++) assertTrue(ring.offer(lap * 3 + i));
+            assertFalse(ring.offer(-1));
+            assertEquals(3, ring.size());
+            for (int i = 0; i < 3; i++) assertEquals(lap * 3 + i, ring.poll());
+            assertNull(ring.poll());
+            assertTrue(ring.isEmpty());
+        }
+    }
+
+    @Test
+    void singleSlotRingHoldsOneElement() {
+        BoundedRing<Integer> ring = new BoundedRing<>(1);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ring.offer(i));
+            assertFalse(ring.offer(-1));
+            assertEquals(1, ring.size());
+            assertEquals(i, ring.poll());
+            assertNull(ring.poll());
+        }
+    }
+
+    @Test
+    void drainToStopsAtMax() {
+        BoundedRing<Integer> ring = new BoundedRing<>(8);
+        for (int i = 0; i < 5; i++) ring.offer(i);
+        List<Integer> out = new ArrayList<>();
+        assertEquals(3, ring.drainTo(out, 3));
+        assertEquals(2, ring.drainTo(out, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4), out);
+    }
+
+    @Test
+    void concurrentProducersAndConsumersSeeEachElementOnceInProducerOrder() throws InterruptedException {
+        BoundedRing<Integer> ring = new BoundedRing<>(64);
+        AtomicInteger taken = new AtomicInteger();
+        List<List<Integer>> seen = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int base = p * PER_PRODUCER;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < PER_PRODUCER; i++) {
+                    while (!ring.offer(base + i)) Thread.yield();
+                }
+            }));
+        }
+        for (int c = 0; c < CONSUMERS; c++) {
+            List<Integer> mine = new ArrayList<>();
+            seen.add(mine);
+            threads.add(Thread.ofPlatform().start(() -> {
+                while (taken.get() < PRODUCERS * PER_PRODUCER) {
+                    Integer v = ring.poll();
+                    if (v == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    mine.add(v);
+                    taken.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread t : threads) t.join();
+
+        BitSet all = new BitSet();
+        for (List<Integer> mine : seen) {
+            int[] last = new int[PRODUCERS];
+            Arrays.fill(last, -1);
+            for (int v : mine) {
+                assertFalse(all.get(v), "delivered twice: " + v);
+                all.set(v);
+                int p = v / PER_PRODUCER;
+                assertTrue(v > last[p], "out of order for producer " + p);
+                last[p] = v;
+            }
+        }
+        assertEquals(PRODUCERS * PER_PRODUCER, all.cardinality());
+        assertTrue(ring.isEmpty());
+    }
+}
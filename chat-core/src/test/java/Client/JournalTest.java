@@ -0,0 +1,107 @@
+package Client;
+
+import Protocol.ChatMessage;
+import Protocol.MessageType;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JournalTest {
+    private static final int SEGMENT = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopensAcrossSegments() throws IOException {
+        List<ChatMessage> written = new ArrayList<>();
+        try (Journal j = Journal.open(dir, SEGMENT)) {
+            for (int i = 0; i < 200; i++) written.add(append(j, i));
+        }
+        try (Journal j = Journal.open(dir, SEGMENT)) {
+            assertEquals(written, j.readBefore(j.end(), 1000).messages());
+            assertEquals(written.subList(150, 200), j.readSince(written.get(150).timestamp(), 1000).messages());
+        }
+    }
+
+    @Test
+    void recoversFromATruncatedTail() throws IOException {
+        List<ChatMessage> written = new ArrayList<>();
+        long last;
+        try (Journal j = Journal.open(dir, SEGMENT)) {
+            for (int i = 0; i < 9; i++) written.add(append(j, i));
+            last = j.append(message(9));
+        }
+        // The process died partway through writing the last record to disk.
+        try (FileChannel log = FileChannel.open(dir.resolve("0000000000.log"), StandardOpenOption.WRITE)) {
+            log.truncate((int) last + 6);
+        }
+        assertRecovered(written, last);
+    }
+
+    @Test
+    void ignoresARecordWhoseLeadingLengthWasNeverWritten() throws IOException {
+        List<ChatMessage> written = new ArrayList<>();
+        long last;
+        try (Journal j = Journal.open(dir, SEGMENT)) {
+            for (int i = 0; i < 9; i++) written.add(append(j, i));
+            last = j.append(message(9));
+        }
+        try (FileChannel log = FileChannel.open(dir.resolve("0000000000.log"), StandardOpenOption.WRITE)) {
+            log.write(ByteBuffer.allocate(4), (int) last);
+        }
+        assertRecovered(written, last);
+    }
+
+    @Test
+    void ignoresARecordWhoseTrailingLengthDisagrees() throws IOException {
+        List<ChatMessage> written = new ArrayList<>();
+        long last;
+        try (Journal j = Journal.open(dir, SEGMENT)) {
+            for (int i = 0; i < 9; i++) written.add(append(j, i));
+            last = j.append(message(9));
+        }
+        try (FileChannel log = FileChannel.open(dir.resolve("0000000000.log"), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer len = ByteBuffer.allocate(4);
+            log.read(len, (int) last);
+            log.write(ByteBuffer.allocate(4).putInt(0, len.getInt(0) + 1), (int) last + 4 + len.getInt(0));
+        }
+        assertRecovered(written, last);
+    }
+
+    // The damaged record is gone, the end is where it started, and appends carry on from there.
+    private void assertRecovered(List<ChatMessage> intact, long damagedAt) throws IOException {
+        try (Journal j = Journal.open(dir, SEGMENT)) {
+            assertEquals(damagedAt, j.end());
+            assertEquals(intact, j.readBefore(j.end(), 100).messages());
+            assertEquals(damagedAt, j.append(message(10)));
+        }
+        List<ChatMessage> expected = new ArrayList<>(intact);
+        expected.add(message(10));
+        try (Journal j = Journal.open(dir, SEGMENT)) {
+            assertEquals(expected, j.readAfter(0, 100).messages());
+        }
+    }
+
+    private static ChatMessage append(Journal j, int i) throws IOException {
+        ChatMessage m = message(i);
+        j.append(m);
+        return m;
+    }
+
+    private static ChatMessage message(int i) {
+        return new ChatMessage(MessageType.CHAT, "user" + i % 3, 1_700_000_000_000L + i * 1000L,
+                "message number " + i + " with a little padding to fill segments", 0, "#room");
+    }
+}
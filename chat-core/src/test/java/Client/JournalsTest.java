@@ -0,0 +1,71 @@
+package Client;
+
+import Protocol.ChatMessage;
+import Protocol.MessageType;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalsTest {
+    private static final int SEGMENT = 4096;
+
+    @TempDir
+    Path dir;
+
+    private final List<IOException> failures = new CopyOnWriteArrayList<>();
+
+    @Test
+    void closeWaitsForQueuedAppends() throws IOException {
+        List<ChatMessage> lobby = new ArrayList<>();
+        List<ChatMessage> ops = new ArrayList<>();
+        Journals journals = new Journals(dir, SEGMENT);
+        for (int i = 0; i < 300; i++) {
+            ChatMessage m = message(i, i % 3 == 0 ? "#ops" : ChatMessage.LOBBY);
+            (m.channel().isEmpty() ? lobby : ops).add(m);
+            journals.append(m, failures::add);
+        }
+        journals.close();
+        assertTrue(failures.isEmpty(), failures::toString);
+        try (Journal j = Journal.open(dir.resolve("lobby"), SEGMENT)) {
+            assertEquals(lobby, j.readBefore(j.end(), 1000).messages());
+        }
+        try (Journal j = Journal.open(dir.resolve("room-ops"), SEGMENT)) {
+            assertEquals(ops, j.readBefore(j.end(), 1000).messages());
+        }
+    }
+
+    @Test
+    void opensAfterAppendsAlreadyQueued() throws Exception {
+        Journals journals = new Journals(dir, SEGMENT);
+        List<ChatMessage> written = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            written.add(message(i, ChatMessage.LOBBY));
+            journals.append(written.getLast(), failures::add);
+        }
+        Journal j = journals.open(ChatMessage.LOBBY).get(5, TimeUnit.SECONDS);
+        assertEquals(written, j.readBefore(j.end(), 100).messages());
+        journals.close();
+    }
+
+    @Test
+    void reportsAppendsAfterClose() {
+        Journals journals = new Journals(dir, SEGMENT);
+        journals.close();
+        journals.append(message(0, ChatMessage.LOBBY), failures::add);
+        assertEquals(1, failures.size());
+    }
+
+    private static ChatMessage message(int i, String channel) {
+        return new ChatMessage(MessageType.CHAT, "alice", 1_700_000_000_000L + i, "line " + i, 0, channel);
+    }
+}
@@ -0,0 +1,80 @@
+package Client;
+
+import Protocol.ChatMessage;
+import Protocol.MessageType;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxTest {
+
+    @Test
+    void rewindSendsUnacknowledgedThenUnsentThenQueued() {
+        Outbox outbox = new Outbox(8, OverflowPolicy.REJECT);
+        for (String s : List.of("a", "b", "c", "d")) outbox.offer(chat(s));
+        List<ChatMessage> drained = new ArrayList<>();
+        outbox.drainTo(drained, 3);
+        // a and b were written, c was drained but the session died before writing it.
+        outbox.sent(outbox.number(drained.get(0)));
+        outbox.sent(outbox.number(drained.get(1)));
+        outbox.offer(chat("e"));
+        outbox.rewind(List.of(drained.get(2)));
+
+        List<ChatMessage> next = drain(outbox);
+        assertEquals(List.of("a", "b", "c", "d", "e"), bodies(next));
+        assertEquals(List.of(1L, 2L, 0L, 0L, 0L), next.stream().map(ChatMessage::seq).toList());
+        assertEquals(0, outbox.inFlight());
+    }
+
+    @Test
+    void acknowledgedLinesAreNotRewound() {
+        Outbox outbox = new Outbox(8, OverflowPolicy.REJECT);
+        for (String s : List.of("a", "b", "c")) outbox.offer(chat(s));
+        for (ChatMessage m : drain(outbox)) outbox.sent(outbox.number(m));
+        assertTrue(outbox.acknowledge(2));
+        assertFalse(outbox.acknowledge(2));
+        outbox.rewind(List.of());
+        assertEquals(List.of("c"), bodies(drain(outbox)));
+    }
+
+    @Test
+    void requeuedLinesGoFirstInOrderEvenPastCapacity() {
+        Outbox outbox = new Outbox(2, OverflowPolicy.REJECT);
+        outbox.offer(chat("q1"));
+        outbox.offer(chat("q2"));
+        assertFalse(outbox.offer(chat("refused")));
+        outbox.requeue(List.of(chat("r1"), chat("r2")));
+        outbox.requeue(List.of(chat("r0")));
+        assertEquals(5, outbox.size());
+        assertEquals(List.of("r0", "r1", "r2", "q1", "q2"), bodies(drain(outbox)));
+        assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    void coalescedOverflowFollowsTheQueue() {
+        Outbox outbox = new Outbox(2, OverflowPolicy.COALESCE);
+        for (String s : List.of("one", "two", "three", "four")) assertTrue(outbox.offer(chat(s)));
+        outbox.requeue(List.of(chat("zero")));
+        assertEquals(List.of("zero", "one", "two", "three\nfour"), bodies(drain(outbox)));
+    }
+
+    private static ChatMessage chat(String body) {
+        return new ChatMessage(MessageType.CHAT, "me", 1, body);
+    }
+
+    private static List<ChatMessage> drain(Outbox outbox) {
+        List<ChatMessage> out = new ArrayList<>();
+        outbox.drainTo(out, 100);
+        return out;
+    }
+
+    private static List<String> bodies(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::body).toList();
+    }
+}
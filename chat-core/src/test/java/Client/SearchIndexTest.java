@@ -0,0 +1,62 @@
+package Client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchIndexTest {
+
+    @Test
+    void matchesEveryQueryWordAsAPrefix() {
+        SearchIndex index = new SearchIndex();
+        index.add(0, "alice", "Hello world");
+        index.add(1, "bob", "help me out");
+        index.add(2, "carol", "in a shell");
+        assertArrayEquals(new int[] {1, 0}, index.search("hel", 10));
+        assertArrayEquals(new int[] {1, 0}, index.search("HEL", 10));
+        assertArrayEquals(new int[0], index.search("hello there", 10));
+    }
+
+    @Test
+    void requiresEveryWord() {
+        SearchIndex index = new SearchIndex();
+        index.add(0, "alice", "red apple");
+        index.add(1, "alice", "green apple");
+        index.add(2, "alice", "red car");
+        assertArrayEquals(new int[] {0}, index.search("apple red", 10));
+        assertArrayEquals(new int[] {1, 0}, index.search("  apple  ", 10));
+        assertArrayEquals(new int[0], index.search("apple blue", 10));
+    }
+
+    @Test
+    void filtersBySender() {
+        SearchIndex index = new SearchIndex();
+        index.add(0, "Alice", "lunch?");
+        index.add(1, "bob", "lunch!");
+        index.add(2, "alicia", "no lunch");
+        assertArrayEquals(new int[] {0}, index.search("from:alice lunch", 10));
+        assertArrayEquals(new int[] {2, 0}, index.search("From:ALI", 10));
+        assertArrayEquals(new int[0], index.search("from:bob no", 10));
+    }
+
+    @Test
+    void returnsTheNewestUpToMax() {
+        SearchIndex index = new SearchIndex();
+        for (int i = 0; i < 200; i++) assertEquals(i, index.add(1000 + i, "alice", "ping " + i));
+        assertArrayEquals(new int[] {199, 198, 197, 196, 195}, index.search("ping", 5));
+        assertEquals(200, index.search("ping", 1000).length);
+        assertEquals(1195, index.ref(195));
+    }
+
+    @Test
+    void foldsQueriesTheWayItIndexes() {
+        SearchIndex index = new SearchIndex();
+        index.add(0, "alice", "İstanbul");
+        index.add(1, "alice", "a".repeat(40) + " done");
+        assertArrayEquals(new int[] {0}, index.search("İstanbul", 10));
+        assertArrayEquals(new int[] {0}, index.search("istanbul", 10));
+        assertArrayEquals(new int[] {1}, index.search("A".repeat(40), 10));
+        assertArrayEquals(new int[] {1}, index.search("done.", 10));
+    }
+}
@@ -0,0 +1,244 @@
+package LoadGen;
+
+import Client.ChatSession;
+import Client.Histogram;
+import Client.Metrics;
+import Client.NioTransport;
+import Client.PinningMonitor;
+import Client.RttStats;
+import Client.SessionListener;
+import Client.SessionOptions;
+import Client.ThreadedTransport;
+import Client.Transport;
+import Client.WaitStrategy;
+import Protocol.ChatMessage;
+import Protocol.Capabilities;
+import Protocol.Compression;
+import Protocol.Frame;
+import Protocol.Framing;
+import Protocol.MessageType;
+import Protocol.Tls;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load generator: opens many client sessions, sends CHAT lines on a fixed schedule and
+ * measures end-to-end latency from each bot's own echoed messages.
+ * <p>
+ * The timestamp field of every CHAT carries the <em>intended</em> send time from the schedule,
+ * not the time the send actually happened, so stalls in the generator, the client queue or the
+ * server all show up as latency (coordinated-omission correction).
+ * <pre>
+ *   java LoadGen.LoadGenerator --host 127.0.0.1 --port 8080 --sessions 1000 --rate 1 \
+ *        --duration 60 --warmup 10 --dist poisson --framing binary --compress deflate --payload 64 --loops 4
+ * </pre>
+ * {@code --rate} is messages per second per session. {@code --wait park|spin-yield|busy-spin}
+ * picks the transports' {@link WaitStrategy}. {@code --transport virtual|platform} replaces the
+ * {@code --loops} selector threads with a blocking reader and writer thread per session, and on
+ * virtual threads reports how often they pinned their carriers. {@code --tls <truststore.p12>}
+ * connects over TLS ({@code --tls-password}, default {@code changeit}), every session sharing one
+ * session cache. {@code --ping <ms>} has every session ping the server that often and reports the
+ * spread of their round-trip times. {@code --metrics-port <port>} serves the client runtime's
+ * {@link Metrics} in Prometheus format on the loopback interface while the run lasts; they are
+ * also published over JMX as {@code Chat:type=LoadGenMetrics}.
+ */
+public final class LoadGenerator implements SessionListener {
+    private final Histogram latencyMillis = new Histogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+    private final Map<ChatSession, Boolean> live = new ConcurrentHashMap<>();
+    private volatile long measureFromMillis = Long.MAX_VALUE;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> opts = parse(args);
+        String host = opts.getOrDefault("host", "127.0.0.1");
+        int port = Integer.parseInt(opts.getOrDefault("port", "8080"));
+        int sessions = Integer.parseInt(opts.getOrDefault("sessions", "100"));
+        double rate = Double.parseDouble(opts.getOrDefault("rate", "1"));
+        int duration = Integer.parseInt(opts.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(opts.getOrDefault("warmup", "5"));
+        boolean poisson = "poisson".equals(opts.getOrDefault("dist", "constant"));
+        Framing framing = Framing.fromWireName(opts.getOrDefault("framing", "text"));
+        int payload = Integer.parseInt(opts.getOrDefault("payload", "64"));
+        int loops = Integer.parseInt(opts.getOrDefault("loops", "2"));
+        long lingerMicros = Long.parseLong(opts.getOrDefault("linger", "0"));
+        Compression compression = Compression.fromWireName(opts.getOrDefault("compress", "none"));
+        WaitStrategy waitStrategy = WaitStrategy.fromName(opts.getOrDefault("wait", "park"));
+        String transport = opts.getOrDefault("transport", "nio");
+
+        Transport[] transports;
+        switch (transport) {
+            case "nio" -> {
+                transports = new Transport[loops];
+                for (int i = 0; i < loops; i++) transports[i] = new NioTransport("LoadGen-" + i, waitStrategy);
+            }
+            case "virtual", "platform" -> transports = new Transport[] {
+                    new ThreadedTransport("LoadGen", transport.equals("virtual"))};
+            default -> throw new IllegalArgumentException("Unknown transport: " + transport);
+        }
+        SessionOptions options = SessionOptions.DEFAULTS.withFraming(framing).withMaxLingerMicros(lingerMicros)
+                .withCompression(compression).withPingIntervalMillis(Long.parseLong(opts.getOrDefault("ping", "0")));
+        String truststore = opts.get("tls");
+        if (truststore != null) {
+            options = options.withTls(Tls.client(Path.of(truststore), opts.getOrDefault("tls-password", "changeit").toCharArray()));
+        }
+        Metrics.shared().exportJmx("Chat:type=LoadGenMetrics");
+        int metricsPort = Integer.parseInt(opts.getOrDefault("metrics-port", "0"));
+        Closeable metrics = metricsPort > 0 ? Metrics.shared().serve(metricsPort) : null;
+        try {
+            new LoadGenerator().run(host, port, sessions, rate, duration, warmup, poisson, options, payload, transports);
+        } finally {
+            if (metrics != null) metrics.close();
+        }
+    }
+
+    private void run(String host, int port, int sessionCount, double ratePerSession, int duration, int warmup,
+                     boolean poisson, SessionOptions options, int payload, Transport[] transports)
+            throws InterruptedException {
+
+        long connectStart = System.nanoTime();
+        List<ChatSession> sessions = connectAll(host, port, sessionCount, transports, options);
+        long connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart);
+        if (sessions.isEmpty()) {
+            System.err.println("No sessions connected.");
+            return;
+        }
+        System.out.printf("connected %d/%d sessions in %d ms (%s framing, %s compression%s)%n",
+                sessions.size(), sessionCount, connectMillis,
+                sessions.get(0).framing().wireName(),
+                Compression.fromWireName(sessions.get(0).accepted().get(Capabilities.COMPRESS)).wireName(),
+                options.tls() == null ? "" : ", tls");
+
+        String body = "x".repeat(Math.max(1, payload));
+        double totalRate = ratePerSession * sessions.size();
+        double meanIntervalNanos = 1e9 / totalRate;
+        long startNanos = System.nanoTime();
+        long startMillis = System.currentTimeMillis();
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(warmup + duration);
+        measureFromMillis = startMillis + TimeUnit.SECONDS.toMillis(warmup);
+
+        double intended = startNanos;
+        long sentAtMeasureStart = -1;
+        int next = 0;
+        while (intended < endNanos) {
+            long due = (long) intended;
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            long intendedMillis = startMillis + (due - startNanos) / 1_000_000;
+            if (sentAtMeasureStart < 0 && intendedMillis >= measureFromMillis) sentAtMeasureStart = sent.sum();
+            ChatSession s = sessions.get(next);
+            next = (next + 1) % sessions.size();
+            if (s.isOpen() && s.offer(new ChatMessage(MessageType.CHAT, s.nickname(), intendedMillis, body))) {
+                sent.increment();
+            } else {
+                dropped.increment();
+            }
+            intended += poisson ? -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos
+                    : meanIntervalNanos;
+        }
+        Thread.sleep(1000);
+        report(sessions.size(), duration, sent.sum() - Math.max(0, sentAtMeasureStart), totalRate);
+        if (options.pingIntervalMillis() > 0) reportRtt(sessions);
+        if (transports[0] instanceof ThreadedTransport t && t.pinning() != null) reportPinning(t.pinning());
+        for (ChatSession s : sessions) s.leave();
+        Thread.sleep(500);
+    }
+
+    private List<ChatSession> connectAll(String host, int port, int count, Transport[] transports,
+                                         SessionOptions options) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(200);
+        List<ChatSession> sessions = new ArrayList<>(count);
+        LongAdder failures = new LongAdder();
+        for (int i = 0; i < count; i++) {
+            inFlight.acquire();
+            transports[i % transports.length].connect(host, port, "bot" + i, options, this)
+                    .whenComplete((s, err) -> {
+                        if (err != null) {
+                            failures.increment();
+                        } else {
+                            synchronized (sessions) {
+                                sessions.add(s);
+                            }
+                            live.put(s, Boolean.TRUE);
+                        }
+                        // Released last: the final acquire must not return before every session is listed.
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(200);
+        if (failures.sum() > 0) System.err.printf("%d sessions failed to connect%n", failures.sum());
+        return sessions;
+    }
+
+    @Override
+    public void onFrame(ChatSession session, Frame frame) {
+        if (frame.type() != MessageType.CHAT) return;
+        long ts = frame.timestamp();
+        if (ts < measureFromMillis) return;
+        received.increment();
+        if (!frame.from().equals(session.nickname())) return;
+        latencyMillis.record(System.currentTimeMillis() - ts);
+    }
+
+    @Override
+    public void onClosed(ChatSession session, IOException cause) {
+        if (live.remove(session) != null && cause != null) disconnects.increment();
+    }
+
+    private void report(int sessions, int duration, long measuredSent, double targetRate) {
+        System.out.printf(Locale.ROOT, "sessions=%d duration=%ds target=%.0f msg/s%n", sessions, duration, targetRate);
+        System.out.printf(Locale.ROOT, "sent=%.0f msg/s  dropped(queue full)=%d  fan-out received=%.0f msg/s  disconnects=%d%n",
+                (double) measuredSent / duration, dropped.sum(), (double) received.sum() / duration, disconnects.sum());
+        System.out.printf(Locale.ROOT, "latency ms (intended send -> echo, n=%d): p50=%d p90=%d p99=%d p99.9=%d max=%d mean=%.2f%n",
+                latencyMillis.count(), latencyMillis.percentile(50), latencyMillis.percentile(90),
+                latencyMillis.percentile(99), latencyMillis.percentile(99.9), latencyMillis.max(), latencyMillis.mean());
+    }
+
+    private static void reportRtt(List<ChatSession> sessions) {
+        Histogram avg = new Histogram();
+        Histogram p99 = new Histogram();
+        for (ChatSession s : sessions) {
+            RttStats.Snapshot rtt = s.rtt().snapshot();
+            if (rtt.samples() == 0) continue;
+            avg.record(rtt.avgNanos() / 1000);
+            p99.record(rtt.p99Nanos() / 1000);
+        }
+        if (avg.count() == 0) {
+            System.out.println("rtt: no PONGs; the server did not accept ping");
+            return;
+        }
+        System.out.printf(Locale.ROOT, "rtt us (per session, n=%d): avg p50=%d p99=%d  p99 p50=%d p99=%d max=%d%n",
+                avg.count(), avg.percentile(50), avg.percentile(99), p99.percentile(50), p99.percentile(99), p99.max());
+    }
+
+    private static void reportPinning(PinningMonitor pinning) {
+        System.out.printf(Locale.ROOT, "carrier pinning: events=%d total=%.1f ms max=%.2f ms%n", pinning.events(),
+                pinning.totalNanos() / 1e6, pinning.maxNanos() / 1e6);
+        pinning.sites(5).forEach((site, n) -> System.out.printf("  %6d  %s%n", n, site));
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Expected --option, got " + args[i]);
+            opts.put(args[i].substring(2), args[i + 1]);
+        }
+        return opts;
+    }
+}
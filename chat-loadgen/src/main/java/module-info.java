@@ -0,0 +1,4 @@
+/** Headless load generator. */
+module chat.loadgen {
+    requires chat.core;
+}
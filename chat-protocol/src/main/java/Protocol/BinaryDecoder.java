@@ -0,0 +1,85 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+
+/** Decoder for the framing written by {@link BinaryEncoder}. Not thread-safe; one per session. */
+public final class BinaryDecoder implements FrameDecoder {
+    public static final int MAX_FRAME = 1 << 20;
+
+    private final Frame frame = new Frame();
+    private final boolean sequenced;
+    private final boolean channels;
+    private final NickCache nicks = new NickCache();
+    private byte[] buf = new byte[1024];
+
+    public BinaryDecoder() {
+        this(false, false);
+    }
+
+    public BinaryDecoder(boolean sequenced) {
+        this(sequenced, false);
+    }
+
+    public BinaryDecoder(boolean sequenced, boolean channels) {
+        this.sequenced = sequenced;
+        this.channels = channels;
+    }
+
+    @Override
+    public Frame decode(ByteBuffer in) throws ProtocolException {
+        int start = in.position();
+        int len = Varint.get(in);
+        if (len == Varint.INCOMPLETE) {
+            in.position(start);
+            return null;
+        }
+        if (len > MAX_FRAME) throw new ProtocolException("Frame of " + len + " bytes exceeds " + MAX_FRAME + ".");
+        if (in.remaining() < len) {
+            in.position(start);
+            return null;
+        }
+        if (len > buf.length) buf = new byte[Math.max(len, buf.length * 2)];
+        in.get(buf, 0, len);
+
+        MessageType type = MessageType.fromCode(buf[0]);
+        int fromLen = 0;
+        int p = 1;
+        for (int shift = 0; ; shift += 7) {
+            if (p >= len || shift > 28) throw new ProtocolException("Malformed frame header.");
+            byte b = buf[p++];
+            fromLen |= (b & 0x7F) << shift;
+            if (b >= 0) break;
+        }
+        // Checked before adding: a five-byte varint can wrap an int offset negative.
+        if (fromLen < 0 || fromLen > len - p - 8) throw new ProtocolException("Truncated frame.");
+        int tsOff = p + fromLen;
+        String from = nicks.get(buf, p, tsOff);
+        long ts = 0;
+        for (int i = tsOff; i < tsOff + 8; i++) ts = ts << 8 | (buf[i] & 0xFF);
+        int bodyOff = tsOff + 8;
+        long seq = 0;
+        if (sequenced) {
+            for (int shift = 0; ; shift += 7) {
+                if (bodyOff >= len || shift > 56) throw new ProtocolException("Malformed sequence number.");
+                byte b = buf[bodyOff++];
+                seq |= (long) (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+        }
+        String channel = ChatMessage.LOBBY;
+        if (channels) {
+            int channelLen = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (bodyOff >= len || shift > 28) throw new ProtocolException("Malformed channel.");
+                byte b = buf[bodyOff++];
+                channelLen |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            if (channelLen < 0 || channelLen > len - bodyOff) throw new ProtocolException("Truncated frame.");
+            channel = nicks.get(buf, bodyOff, bodyOff + channelLen);
+            bodyOff += channelLen;
+        }
+        frame.reset(type, from, ts, seq, channel, buf, bodyOff, len - bodyOff);
+        return frame;
+    }
+}
@@ -0,0 +1,51 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary framing: {@code varint(length) | type | varint(fromLength) | from | int64 ts | body},
+ * where length covers everything after itself and strings are UTF-8. The body runs to the end
+ * of the frame, so it may contain any characters. Sequenced frames add {@code varint(seq)}
+ * between the timestamp and the body, and frames with channels then add
+ * {@code varint(channelLength) | channel}.
+ */
+public final class BinaryEncoder implements FrameEncoder {
+    private final boolean sequenced;
+    private final boolean channels;
+
+    public BinaryEncoder() {
+        this(false, false);
+    }
+
+    public BinaryEncoder(boolean sequenced) {
+        this(sequenced, false);
+    }
+
+    public BinaryEncoder(boolean sequenced, boolean channels) {
+        this.sequenced = sequenced;
+        this.channels = channels;
+    }
+
+    @Override
+    public boolean encode(ChatMessage m, ByteBuffer out) {
+        int fromLen = Utf8.length(m.from());
+        int bodyLen = Utf8.length(m.body());
+        int payload = 1 + Varint.size(fromLen) + fromLen + 8 + bodyLen;
+        if (sequenced) payload += Varint.size(m.seq());
+        int channelLen = channels ? Utf8.length(m.channel()) : 0;
+        if (channels) payload += Varint.size(channelLen) + channelLen;
+        if (out.remaining() < Varint.size(payload) + payload) return false;
+        Varint.put(out, payload);
+        out.put(m.type().code());
+        Varint.put(out, fromLen);
+        Utf8.put(out, m.from());
+        out.putLong(m.timestamp());
+        if (sequenced) Varint.put(out, m.seq());
+        if (channels) {
+            Varint.put(out, channelLen);
+            Utf8.put(out, m.channel());
+        }
+        Utf8.put(out, m.body());
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+/** Writes batches of encoded frames as {@link Compression} blocks. Not thread-safe; one per connection. */
+public final class BlockDeflater {
+    static final int HEADER = 3;
+    /** Most plaintext one block may carry. */
+    public static final int MAX_PLAIN = 64 * 1024;
+    /** Most bytes one block may carry, compressed or not. */
+    static final int MAX_BLOCK = MAX_PLAIN + 1024;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private final int threshold;
+    private final ByteBuffer[] single = new ByteBuffer[1];
+    private long plainBytes;
+    private long wireBytes;
+
+    BlockDeflater(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /** Room a block for {@code plain} bytes may need, header included. */
+    public static int maxBlockSize(int plain) {
+        return HEADER + plain + (plain >> 6) + 64;
+    }
+
+    public void write(ByteBuffer src, ByteBuffer out) {
+        single[0] = src;
+        write(single, 0, 1, out);
+        single[0] = null;
+    }
+
+    /**
+     * Consumes the remaining bytes of {@code srcs[offset..offset+length)}, at most {@link #MAX_PLAIN}
+     * in all, and appends them to {@code out} as one block. {@code out} needs
+     * {@link #maxBlockSize} bytes of room.
+     */
+    public void write(ByteBuffer[] srcs, int offset, int length, ByteBuffer out) {
+        int plain = 0;
+        for (int i = offset; i < offset + length; i++) plain += srcs[i].remaining();
+        if (plain > MAX_PLAIN) throw new IllegalArgumentException("Block of " + plain + " bytes exceeds " + MAX_PLAIN + ".");
+        if (out.remaining() < maxBlockSize(plain)) throw new IllegalArgumentException("No room for block.");
+        int headerAt = out.position();
+        out.position(headerAt + HEADER);
+        boolean deflated = plain >= threshold;
+        if (deflated) {
+            for (int i = offset; i < offset + length; i++) {
+                deflater.setInput(srcs[i]);
+                while (!deflater.needsInput()) deflater.deflate(out, Deflater.NO_FLUSH);
+            }
+            // Room is reserved above, so one call flushes everything; the check guards the bound.
+            deflater.deflate(out, Deflater.SYNC_FLUSH);
+            if (!out.hasRemaining()) throw new IllegalStateException("Deflate output exceeded its bound.");
+        } else {
+            for (int i = offset; i < offset + length; i++) out.put(srcs[i]);
+        }
+        int len = out.position() - headerAt - HEADER;
+        int header = len << 1 | (deflated ? 1 : 0);
+        out.put(headerAt, (byte) (header >>> 16)).put(headerAt + 1, (byte) (header >>> 8)).put(headerAt + 2, (byte) header);
+        plainBytes += plain;
+        wireBytes += HEADER + len;
+    }
+
+    /** Frame bytes written so far. */
+    public long plainBytes() {
+        return plainBytes;
+    }
+
+    /** Block bytes written so far, headers included. */
+    public long wireBytes() {
+        return wireBytes;
+    }
+
+    /** Frees the native stream; later writes fail. */
+    public void end() {
+        deflater.end();
+    }
+}
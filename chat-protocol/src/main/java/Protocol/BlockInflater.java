@@ -0,0 +1,75 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads {@link Compression} blocks back into frame bytes. Blocks are unpacked as their bytes
+ * arrive, so the input buffer need not hold a whole block. Not thread-safe; one per connection.
+ */
+public final class BlockInflater {
+    private final Inflater inflater = new Inflater(true);
+    private int rawRemaining;
+    private int deflatedRemaining;
+    // The inflater filled the output last time and may hold more for the current block.
+    private boolean draining;
+
+    BlockInflater() {
+    }
+
+    /**
+     * Unpacks as much of {@code in} as fits into {@code out}, advancing both. Stops when
+     * {@code out} is full or {@code in} holds no more usable bytes.
+     */
+    public void read(ByteBuffer in, ByteBuffer out) throws ProtocolException {
+        while (out.hasRemaining()) {
+            if (rawRemaining > 0) {
+                int n = Math.min(rawRemaining, Math.min(in.remaining(), out.remaining()));
+                if (n == 0) return;
+                out.put(out.position(), in, in.position(), n);
+                out.position(out.position() + n);
+                in.position(in.position() + n);
+                rawRemaining -= n;
+            } else if (deflatedRemaining > 0 || draining) {
+                int n = Math.min(deflatedRemaining, in.remaining());
+                if (n == 0 && !draining) return;
+                // Fence the inflater in to this block by limit rather than a slice, which would allocate.
+                int limit = in.limit();
+                int start = in.position();
+                in.limit(start + n);
+                int produced;
+                inflater.setInput(in);
+                try {
+                    produced = inflater.inflate(out);
+                } catch (DataFormatException e) {
+                    throw new ProtocolException("Corrupt compressed block: " + e.getMessage());
+                } finally {
+                    in.limit(limit);
+                }
+                if (inflater.finished()) throw new ProtocolException("Compressed stream ended early.");
+                int used = in.position() - start;
+                deflatedRemaining -= used;
+                draining = !out.hasRemaining();
+                if (used == 0 && produced == 0) return;
+            } else {
+                if (in.remaining() < BlockDeflater.HEADER) return;
+                int header = (in.get() & 0xFF) << 16 | (in.get() & 0xFF) << 8 | in.get() & 0xFF;
+                int len = header >>> 1;
+                if (len > BlockDeflater.MAX_BLOCK) throw new ProtocolException("Block of " + len + " bytes exceeds " + BlockDeflater.MAX_BLOCK + ".");
+                if ((header & 1) != 0) deflatedRemaining = len;
+                else rawRemaining = len;
+            }
+        }
+    }
+
+    /** True if bytes of the current block are still held back for lack of output room. */
+    public boolean draining() {
+        return draining;
+    }
+
+    /** Frees the native stream; later reads fail. */
+    public void end() {
+        inflater.end();
+    }
+}
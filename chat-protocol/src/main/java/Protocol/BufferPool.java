@@ -0,0 +1,56 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffers of one size and kind, handed out and taken back instead of allocated per use. Holds
+ * at most {@code maxIdle} spare buffers; beyond that, released buffers are left to the collector.
+ * Any thread may acquire and release.
+ */
+public final class BufferPool {
+    private final int bufferSize;
+    private final boolean direct;
+    private final int maxIdle;
+    private final ConcurrentLinkedQueue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+    // ConcurrentLinkedQueue.size() walks the queue.
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final LongAdder allocated = new LongAdder();
+
+    public BufferPool(int bufferSize, boolean direct, int maxIdle) {
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.maxIdle = maxIdle;
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    /** A cleared buffer of {@link #bufferSize()} bytes. */
+    public ByteBuffer acquire() {
+        ByteBuffer b = idle.poll();
+        if (b == null) {
+            allocated.increment();
+            return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        }
+        idleCount.decrementAndGet();
+        return b;
+    }
+
+    /** Returns {@code b}; the caller must not touch it again. */
+    public void release(ByteBuffer b) {
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idle.offer(b.clear());
+    }
+
+    /** Buffers allocated because none was idle; flat once the pool has warmed up. */
+    public long allocated() {
+        return allocated.sum();
+    }
+}
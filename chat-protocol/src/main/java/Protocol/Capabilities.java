@@ -0,0 +1,116 @@
+package Protocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code key=value;key=value} list carried in the body of {@code JOIN} (offered by the client)
+ * and {@code CAPS} (accepted by the server). Unknown keys are ignored by both sides.
+ */
+public final class Capabilities {
+    public static final String FRAMING = "framing";
+    /** {@code seq=1}: every frame carries a sequence number; broadcasts are numbered by the server. */
+    public static final String SEQ = "seq";
+    /**
+     * {@code ack=1}, with {@code seq}: the client numbers its {@code CHAT} lines and the server
+     * answers with cumulative {@code ACK}s, dropping numbers it has already relayed.
+     */
+    public static final String ACK = "ack";
+    /** Server instance id; sequence numbers are only comparable within one epoch. */
+    public static final String EPOCH = "epoch";
+    /** Secret issued in {@code CAPS} that lets a reconnecting client take over its own nickname. */
+    public static final String TOKEN = "token";
+    /** Last broadcast sequence number the client received; the server replays what follows. */
+    public static final String RESUME = "resume";
+    /** A {@link Compression} wire name; accepted, everything after the handshake travels compressed. */
+    public static final String COMPRESS = "compress";
+    /**
+     * {@code ping=1}: the server answers each {@code PING} with a {@code PONG} carrying the same
+     * timestamp, which the client may use for anything, e.g. a monotonic clock reading.
+     */
+    public static final String PING = "ping";
+    /**
+     * {@code channels=1}: every frame carries a channel, empty for the lobby. A {@code JOIN} or
+     * {@code LEAVE} with a channel enters or leaves that room; {@code CHAT} goes to its members.
+     */
+    public static final String CHANNELS = "channels";
+    /** Comma-separated rooms, with {@code channels}: joined during the handshake, before any replay. */
+    public static final String ROOMS = "rooms";
+
+    private final Map<String, String> values;
+
+    private Capabilities(Map<String, String> values) {
+        this.values = values;
+    }
+
+    public static Capabilities none() {
+        return new Capabilities(new LinkedHashMap<>());
+    }
+
+    public static Capabilities parse(String s) {
+        Map<String, String> map = new LinkedHashMap<>();
+        if (s != null) {
+            for (String part : s.split(";")) {
+                int eq = part.indexOf('=');
+                if (eq > 0) map.put(part.substring(0, eq).strip(), part.substring(eq + 1).strip());
+            }
+        }
+        return new Capabilities(map);
+    }
+
+    public Capabilities with(String key, String value) {
+        values.put(key, value);
+        return this;
+    }
+
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public boolean isSet(String key) {
+        return "1".equals(values.get(key));
+    }
+
+    public long getLong(String key, long fallback) {
+        String v = values.get(key);
+        if (v == null) return fallback;
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /** Comma-separated values of {@code key}; empty if it is absent. */
+    public List<String> getList(String key) {
+        String v = values.get(key);
+        if (v == null || v.isEmpty()) return List.of();
+        List<String> out = new ArrayList<>();
+        for (String part : v.split(",")) {
+            String x = part.strip();
+            if (!x.isEmpty()) out.add(x);
+        }
+        return out;
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public Map<String, String> asMap() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (var e : values.entrySet()) {
+            if (!sb.isEmpty()) sb.append(';');
+            sb.append(e.getKey()).append('=').append(e.getValue());
+        }
+        return sb.toString();
+    }
+}
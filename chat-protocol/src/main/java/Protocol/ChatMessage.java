@@ -0,0 +1,61 @@
+package Protocol;
+
+import java.util.regex.Pattern;
+
+/**
+ * {@code seq} is 0 unless the message travels over a sequenced connection. {@code channel} is
+ * {@link #LOBBY}, which every connection is in, or the name of a room; only connections that
+ * negotiated {@code channels} carry it on the wire.
+ */
+public record ChatMessage(MessageType type, String from, long timestamp, String body, long seq, String channel) {
+
+    /** Longest body, in chars, that clients send and the server relays. */
+    public static final int MAX_BODY = 500;
+
+    /** Timestamp of client-side notices, which are shown without a time. */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    /** The implicit room of the original protocol. */
+    public static final String LOBBY = "";
+
+    private static final Pattern ROOM = Pattern.compile("#[A-Za-z0-9_-]{1,32}");
+
+    public ChatMessage {
+        if (channel == null) channel = LOBBY;
+    }
+
+    public ChatMessage(MessageType type, String from, long timestamp, String body) {
+        this(type, from, timestamp, body, 0, LOBBY);
+    }
+
+    public ChatMessage(MessageType type, String from, long timestamp, String body, long seq) {
+        this(type, from, timestamp, body, seq, LOBBY);
+    }
+
+    public ChatMessage withSeq(long seq) {
+        return new ChatMessage(type, from, timestamp, body, seq, channel);
+    }
+
+    public ChatMessage withChannel(String channel) {
+        return new ChatMessage(type, from, timestamp, body, seq, channel);
+    }
+
+    /** {@code #} followed by 1-32 letters, digits, underscores or dashes. */
+    public static boolean isRoomName(String s) {
+        return s != null && ROOM.matcher(s).matches();
+    }
+
+    public static ChatMessage notice(String text) {
+        return new ChatMessage(MessageType.SYSTEM, "", NO_TIMESTAMP, text);
+    }
+
+    /** Normalises user input into a body: truncated, stripped, and single-line for text framing. */
+    public static String sanitize(String s, Framing framing) {
+        if (s == null) return "";
+        // Replacement keeps the length, so truncating first bounds the work for large pastes.
+        String x = s.length() > MAX_BODY ? s.substring(0, MAX_BODY) : s;
+        // Only the text framing reserves tabs and line breaks.
+        if (framing == Framing.TEXT) x = x.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+        return x.strip();
+    }
+}
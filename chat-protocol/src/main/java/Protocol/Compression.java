@@ -0,0 +1,50 @@
+package Protocol;
+
+/**
+ * Stream compression beneath the framing, negotiated during {@code JOIN} via the
+ * {@code compress} capability. The client compresses everything after its {@code JOIN} and the
+ * server everything after its {@code CAPS} reply; neither side sends anything in between.
+ * <p>
+ * Compressed bytes travel in blocks: a 3-byte big-endian header {@code length << 1 | deflated}
+ * followed by {@code length} bytes. Each direction is one deflate stream whose dictionary
+ * persists across blocks, so later lines compress against earlier ones; every block ends on a
+ * sync flush and decodes as soon as it arrives. A sender may store a block raw when it is too
+ * small to be worth compressing; raw blocks bypass the dictionary on both sides.
+ */
+public enum Compression {
+    NONE("none"), DEFLATE("deflate");
+
+    /**
+     * Batches smaller than this many bytes are sent raw by default. Against a warm dictionary even
+     * a single chat line shrinks by half; below this the block header and flush marker eat the gain.
+     */
+    public static final int DEFAULT_THRESHOLD = 32;
+
+    private final String wireName;
+
+    Compression(String wireName) {
+        this.wireName = wireName;
+    }
+
+    public String wireName() {
+        return wireName;
+    }
+
+    public static Compression fromWireName(String name) {
+        for (Compression c : values()) {
+            if (c.wireName.equals(name)) return c;
+        }
+        return NONE;
+    }
+
+    /** A compressor for one direction of one connection; batches under {@code threshold} bytes go raw. */
+    public BlockDeflater newDeflater(int threshold) {
+        if (this == NONE) throw new IllegalStateException("No compression negotiated.");
+        return new BlockDeflater(threshold);
+    }
+
+    public BlockInflater newInflater() {
+        if (this == NONE) throw new IllegalStateException("No compression negotiated.");
+        return new BlockInflater();
+    }
+}
@@ -0,0 +1,66 @@
+package Protocol;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable view over one decoded wire line. Only valid for the duration of the callback it is
+ * passed to; call {@link #toMessage()} to keep it. The body is decoded on first access.
+ */
+public final class Frame {
+    MessageType type;
+    String from;
+    long timestamp;
+    long seq;
+    String channel = ChatMessage.LOBBY;
+    private byte[] buf;
+    private int bodyOff;
+    private int bodyLen;
+    private String body;
+
+    Frame() {
+    }
+
+    void reset(MessageType type, String from, long timestamp, long seq, String channel, byte[] buf, int bodyOff,
+               int bodyLen) {
+        this.type = type;
+        this.from = from;
+        this.timestamp = timestamp;
+        this.seq = seq;
+        this.channel = channel;
+        this.buf = buf;
+        this.bodyOff = bodyOff;
+        this.bodyLen = bodyLen;
+        this.body = null;
+    }
+
+    public MessageType type() {
+        return type;
+    }
+
+    public String from() {
+        return from;
+    }
+
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /** 0 unless the connection negotiated the {@code seq} capability. */
+    public long seq() {
+        return seq;
+    }
+
+    /** {@link ChatMessage#LOBBY} unless the connection negotiated the {@code channels} capability. */
+    public String channel() {
+        return channel;
+    }
+
+    public String body() {
+        if (body == null) body = bodyLen == 0 ? "" : new String(buf, bodyOff, bodyLen, StandardCharsets.UTF_8);
+        return body;
+    }
+
+    public ChatMessage toMessage() {
+        return new ChatMessage(type, from, timestamp, body(), seq, channel);
+    }
+}
@@ -0,0 +1,13 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+
+public interface FrameDecoder {
+
+    /**
+     * Decodes the next complete frame starting at {@code in.position()} and advances past it,
+     * or returns null and leaves the position untouched if more bytes are needed. The returned
+     * frame is reused by the next call.
+     */
+    Frame decode(ByteBuffer in) throws ProtocolException;
+}
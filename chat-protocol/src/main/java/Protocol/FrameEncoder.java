@@ -0,0 +1,12 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+
+public interface FrameEncoder {
+
+    /**
+     * Appends {@code m} to {@code out}. Returns false, with {@code out} unchanged, if it does not
+     * fit in the remaining space.
+     */
+    boolean encode(ChatMessage m, ByteBuffer out);
+}
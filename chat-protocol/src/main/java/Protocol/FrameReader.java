@@ -0,0 +1,83 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The receiving half of a connection: socket reads go into {@link #readTarget()}, frames come
+ * out of {@link #next()}. Framing can change between frames via {@link #decoder(FrameDecoder)},
+ * and compression via {@link #startInflating}; bytes already read but not yet decoded are
+ * interpreted accordingly. Not thread-safe; one per connection.
+ * <pre>
+ *   channel.read(in.readTarget());
+ *   in.begin();
+ *   while ((f = in.next()) != null) handle(f);
+ *   if (!in.end()) // a frame larger than the buffer
+ * </pre>
+ */
+public final class FrameReader {
+    private final ByteBuffer frames;
+    private FrameDecoder decoder;
+    private BlockInflater inflater;
+    private ByteBuffer blocks;
+
+    /** {@code frames} bounds the largest frame that can be read; it is used in write mode between reads. */
+    public FrameReader(ByteBuffer frames, FrameDecoder decoder) {
+        this.frames = frames;
+        this.decoder = decoder;
+    }
+
+    public void decoder(FrameDecoder decoder) {
+        this.decoder = decoder;
+    }
+
+    /**
+     * Unpacks every later byte as compressed blocks, including those read but not yet decoded.
+     * Call while handling a frame returned by {@link #next()}, i.e. the one that negotiated it.
+     */
+    public void startInflating(Compression c) {
+        inflater = c.newInflater();
+        int size = frames.capacity();
+        blocks = frames.isDirect() ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        blocks.put(frames);
+    }
+
+    public boolean isInflating() {
+        return inflater != null;
+    }
+
+    public ByteBuffer readTarget() {
+        return inflater != null ? blocks : frames;
+    }
+
+    /** Call after each socket read, before {@link #next()}. */
+    public void begin() {
+        frames.flip();
+    }
+
+    /** The next frame, reused by the following call; null once more bytes must be read. */
+    public Frame next() throws ProtocolException {
+        while (true) {
+            Frame f = decoder.decode(frames);
+            if (f != null || inflater == null) return f;
+            frames.compact();
+            int before = frames.position();
+            blocks.flip();
+            inflater.read(blocks, frames);
+            blocks.compact();
+            boolean produced = frames.position() > before;
+            frames.flip();
+            if (!produced) return null;
+        }
+    }
+
+    /** Call once {@link #next()} returns null. False if a single frame has filled the buffer. */
+    public boolean end() {
+        frames.compact();
+        return frames.hasRemaining();
+    }
+
+    /** Frees the decompressor, if any. */
+    public void endInflating() {
+        if (inflater != null) inflater.end();
+    }
+}
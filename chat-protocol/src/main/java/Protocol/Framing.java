@@ -0,0 +1,52 @@
+package Protocol;
+
+/**
+ * Wire framings. {@link #TEXT} is the original tab-separated line protocol; {@link #BINARY} is
+ * negotiated during {@code JOIN} via the {@code framing} capability and lets bodies carry tabs
+ * and newlines. Either framing can additionally carry a sequence number per message once the
+ * {@code seq} capability has been accepted, and a channel once {@code channels} has.
+ */
+public enum Framing {
+    TEXT("text"), BINARY("binary");
+
+    private final String wireName;
+
+    Framing(String wireName) {
+        this.wireName = wireName;
+    }
+
+    public String wireName() {
+        return wireName;
+    }
+
+    public static Framing fromWireName(String name) {
+        for (Framing f : values()) {
+            if (f.wireName.equals(name)) return f;
+        }
+        return TEXT;
+    }
+
+    public FrameDecoder newDecoder() {
+        return newDecoder(false);
+    }
+
+    public FrameEncoder newEncoder() {
+        return newEncoder(false);
+    }
+
+    public FrameDecoder newDecoder(boolean sequenced) {
+        return newDecoder(sequenced, false);
+    }
+
+    public FrameEncoder newEncoder(boolean sequenced) {
+        return newEncoder(sequenced, false);
+    }
+
+    public FrameDecoder newDecoder(boolean sequenced, boolean channels) {
+        return this == BINARY ? new BinaryDecoder(sequenced, channels) : new LineDecoder(sequenced, channels);
+    }
+
+    public FrameEncoder newEncoder(boolean sequenced, boolean channels) {
+        return this == BINARY ? new BinaryEncoder(sequenced, channels) : new TextEncoder(sequenced, channels);
+    }
+}
@@ -0,0 +1,104 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes {@code TYPE\tfrom\tts\tbody} lines (or {@code TYPE\tfrom\tts\tseq\tbody} when sequenced)
+ * straight from bytes into a reused {@link Frame}. With channels a channel field precedes the body.
+ * Nicknames and channels come from a small direct-mapped intern cache, so a steady stream from the same
+ * senders allocates nothing until the body is read. Not thread-safe; one per session.
+ */
+public final class LineDecoder implements FrameDecoder {
+    private final Frame frame = new Frame();
+    private final boolean sequenced;
+    private final boolean channels;
+    private final NickCache nicks = new NickCache();
+    private byte[] line = new byte[1024];
+
+    public LineDecoder() {
+        this(false, false);
+    }
+
+    public LineDecoder(boolean sequenced) {
+        this(sequenced, false);
+    }
+
+    public LineDecoder(boolean sequenced, boolean channels) {
+        this.sequenced = sequenced;
+        this.channels = channels;
+    }
+
+    @Override
+    public Frame decode(ByteBuffer in) {
+        int start = in.position();
+        int limit = in.limit();
+        int nl = -1;
+        for (int i = start; i < limit; i++) {
+            if (in.get(i) == '\n') {
+                nl = i;
+                break;
+            }
+        }
+        if (nl < 0) return null;
+        int end = nl > start && in.get(nl - 1) == '\r' ? nl - 1 : nl;
+        int len = end - start;
+        if (len > line.length) line = new byte[Math.max(len, line.length * 2)];
+        in.get(start, line, 0, len);
+        in.position(nl + 1);
+        return decode(line, len);
+    }
+
+    public Frame decode(byte[] line, int len) {
+        int t1 = indexOf(line, 0, len);
+        int t2 = t1 < 0 ? -1 : indexOf(line, t1 + 1, len);
+        int t3 = t2 < 0 ? -1 : indexOf(line, t2 + 1, len);
+
+        int typeEnd = t1 < 0 ? len : t1;
+        MessageType type = MessageType.parse(line, 0, typeEnd);
+        String from = t1 < 0 ? "" : nicks.get(line, t1 + 1, t2 < 0 ? len : t2);
+        long ts = t2 < 0 ? System.currentTimeMillis() : parseTimestamp(line, t2 + 1, t3 < 0 ? len : t3);
+        long seq = 0;
+        int bodyOff = t3 < 0 ? len : t3 + 1;
+        if (sequenced && t3 >= 0) {
+            int t4 = indexOf(line, t3 + 1, len);
+            if (t4 >= 0) {
+                seq = Math.max(0, parseDecimal(line, t3 + 1, t4));
+                bodyOff = t4 + 1;
+            }
+        }
+        String channel = ChatMessage.LOBBY;
+        if (channels && t3 >= 0) {
+            int t = indexOf(line, bodyOff, len);
+            if (t >= 0) {
+                channel = nicks.get(line, bodyOff, t);
+                bodyOff = t + 1;
+            }
+        }
+        frame.reset(type, from, ts, seq, channel, line, bodyOff, len - bodyOff);
+        return frame;
+    }
+
+    private static int indexOf(byte[] buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == '\t') return i;
+        }
+        return -1;
+    }
+
+    private static long parseTimestamp(byte[] buf, int from, int to) {
+        long v = parseDecimal(buf, from, to);
+        return v < 0 ? System.currentTimeMillis() : v;
+    }
+
+    /** Non-negative decimal in {@code buf[from, to)}, or -1 if empty, too long or not all digits. */
+    private static long parseDecimal(byte[] buf, int from, int to) {
+        if (from == to || to - from > 18) return -1;
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            int d = buf[i] - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,45 @@
+package Protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public enum MessageType {
+    JOIN(1), LEAVE(2), CHAT(3), SYSTEM(4), ERROR(5), CAPS(6), ACK(7), PING(8), PONG(9), UNKNOWN(0);
+
+    private static final MessageType[] KNOWN = {CHAT, ACK, PING, PONG, SYSTEM, ERROR, JOIN, LEAVE, CAPS};
+    private static final MessageType[] BY_CODE = new MessageType[64];
+
+    static {
+        for (MessageType t : values()) BY_CODE[t.code] = t;
+    }
+
+    private final byte code;
+    private final byte[] wire = name().getBytes(StandardCharsets.US_ASCII);
+
+    MessageType(int code) {
+        this.code = (byte) code;
+    }
+
+    /** Type byte used by the binary framing. */
+    public byte code() {
+        return code;
+    }
+
+    byte[] wireName() {
+        return wire;
+    }
+
+    public static MessageType fromCode(int code) {
+        MessageType t = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        return t == null ? UNKNOWN : t;
+    }
+
+    /** Matches {@code buf[off, off + len)} against the wire names without allocating. */
+    public static MessageType parse(byte[] buf, int off, int len) {
+        for (MessageType t : KNOWN) {
+            byte[] w = t.wire;
+            if (w.length == len && Arrays.equals(w, 0, len, buf, off, off + len)) return t;
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,26 @@
+package Protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** Direct-mapped cache from nickname bytes to interned Strings; a hit allocates nothing. */
+final class NickCache {
+    private static final int SLOTS = 256;
+
+    private final byte[][] keys = new byte[SLOTS][];
+    private final String[] values = new String[SLOTS];
+
+    String get(byte[] buf, int from, int to) {
+        int len = to - from;
+        if (len == 0) return "";
+        int h = 0x811c9dc5;
+        for (int i = from; i < to; i++) h = (h ^ buf[i]) * 0x01000193;
+        int slot = (h ^ (h >>> 16)) & (SLOTS - 1);
+        byte[] key = keys[slot];
+        if (key != null && key.length == len && Arrays.equals(key, 0, len, buf, from, to)) return values[slot];
+        String s = new String(buf, from, len, StandardCharsets.UTF_8).intern();
+        keys[slot] = Arrays.copyOfRange(buf, from, to);
+        values[slot] = s;
+        return s;
+    }
+}
@@ -0,0 +1,10 @@
+package Protocol;
+
+import java.io.IOException;
+
+/** The peer sent bytes that do not form a valid frame; the connection cannot continue. */
+public class ProtocolException extends IOException {
+    public ProtocolException(String message) {
+        super(message);
+    }
+}
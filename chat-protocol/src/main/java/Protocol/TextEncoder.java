@@ -0,0 +1,79 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the tab-separated line framing. {@code JOIN} and {@code LEAVE} without a body keep the
+ * original two-field form. Tabs and line breaks inside fields are replaced with spaces, since
+ * the framing cannot carry them. A sequenced encoder writes the sequence number as a field
+ * between the timestamp and the body; one that carries channels follows it with the channel,
+ * empty for the lobby.
+ */
+public final class TextEncoder implements FrameEncoder {
+    private final boolean sequenced;
+    private final boolean channels;
+
+    public TextEncoder() {
+        this(false, false);
+    }
+
+    public TextEncoder(boolean sequenced) {
+        this(sequenced, false);
+    }
+
+    public TextEncoder(boolean sequenced, boolean channels) {
+        this.sequenced = sequenced;
+        this.channels = channels;
+    }
+
+    @Override
+    public boolean encode(ChatMessage m, ByteBuffer out) {
+        String from = escape(m.from());
+        String body = escape(m.body());
+        byte[] type = m.type().wireName();
+        String channel = channels ? escape(m.channel()) : "";
+        boolean shortForm = body.isEmpty() && channel.isEmpty()
+                && (m.type() == MessageType.JOIN || m.type() == MessageType.LEAVE);
+        int need = type.length + 1 + Utf8.length(from) + 1;
+        if (!shortForm) need += 1 + 20 + 1 + Utf8.length(body);
+        if (!shortForm && sequenced) need += 20 + 1;
+        if (!shortForm && channels) need += Utf8.length(channel) + 1;
+        if (out.remaining() < need) return false;
+
+        out.put(type).put((byte) '\t');
+        Utf8.put(out, from);
+        if (!shortForm) {
+            out.put((byte) '\t');
+            putDecimal(out, m.timestamp());
+            out.put((byte) '\t');
+            if (sequenced) {
+                putDecimal(out, m.seq());
+                out.put((byte) '\t');
+            }
+            if (channels) {
+                Utf8.put(out, channel);
+                out.put((byte) '\t');
+            }
+            Utf8.put(out, body);
+        }
+        out.put((byte) '\n');
+        return true;
+    }
+
+    private static String escape(String s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '\t' || c == '\r' || c == '\n') return s.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+        }
+        return s;
+    }
+
+    // Counts down from a non-positive value, since Long.MIN_VALUE (NO_TIMESTAMP) has no positive.
+    private static void putDecimal(ByteBuffer out, long v) {
+        if (v < 0) out.put((byte) '-');
+        else v = -v;
+        long div = 1;
+        while (v / div <= -10) div *= 10;
+        for (; div > 0; div /= 10) out.put((byte) ('0' - v / div % 10));
+    }
+}
@@ -0,0 +1,121 @@
+package Protocol;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.List;
+
+/**
+ * TLS settings shared by every connection on one side. The {@link SSLContext} keeps the
+ * session cache, so a client that reconnects to the same host and port through the same
+ * {@code Tls} resumes with a TLS 1.3 ticket instead of a full handshake. Connections lease
+ * their network buffers from one {@link BufferPool}.
+ */
+public final class Tls {
+    private static final String[] PROTOCOLS = {"TLSv1.3"};
+    private static final int MAX_IDLE_BUFFERS = 256;
+
+    private final SSLContext context;
+    private final boolean client;
+    private final BufferPool pool;
+
+    private Tls(SSLContext context, boolean client) {
+        this.context = context;
+        this.client = client;
+        SSLEngine probe = context.createSSLEngine();
+        probe.setEnabledProtocols(PROTOCOLS);
+        int size = Math.max(probe.getSession().getPacketBufferSize(), probe.getSession().getApplicationBufferSize());
+        // Heap: the JDK's AES-GCM works on a heap buffer's array in place, but stages a direct
+        // buffer through fresh arrays, some 38 KB of garbage per record each way.
+        this.pool = new BufferPool(size, false, MAX_IDLE_BUFFERS);
+    }
+
+    /** Server side, presenting the key in a PKCS#12 {@code keystore}. */
+    public static Tls server(Path keystore, char[] password) throws IOException {
+        try {
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(load(keystore, password), password);
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(kmf.getKeyManagers(), null, null);
+            return new Tls(context, false);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot use keystore " + keystore + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Client side, trusting the certificates in {@code truststore}, or the JDK's defaults if null. */
+    public static Tls client(Path truststore, char[] password) throws IOException {
+        try {
+            TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            tmf.init(truststore == null ? null : load(truststore, password));
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, tmf.getTrustManagers(), null);
+            return new Tls(context, true);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot use truststore " + truststore + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Generates a self-signed certificate for {@code localhost} and 127.0.0.1 into
+     * {@code dir/chat.p12} with the JDK's {@code keytool}, unless it already exists. The same
+     * file serves as the server's keystore and the clients' truststore.
+     */
+    public static Path selfSigned(Path dir, char[] password) throws IOException {
+        Path keystore = dir.resolve("chat.p12");
+        if (Files.exists(keystore)) return keystore;
+        Files.createDirectories(dir);
+        Path keytool = Path.of(System.getProperty("java.home"), "bin", "keytool");
+        Process p = new ProcessBuilder(List.of(keytool.toString(), "-genkeypair", "-alias", "chat",
+                "-keyalg", "EC", "-groupname", "secp256r1", "-validity", "365",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+                "-storetype", "PKCS12", "-keystore", keystore.toString(),
+                "-storepass", new String(password)))
+                .redirectErrorStream(true).start();
+        String output = new String(p.getInputStream().readAllBytes());
+        try {
+            if (p.waitFor() != 0) throw new IOException("keytool failed: " + output.strip());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for keytool.", e);
+        }
+        return keystore;
+    }
+
+    /** Wraps an accepted {@code channel}. */
+    public TlsChannel open(SocketChannel channel) {
+        return open(channel, null, -1);
+    }
+
+    /** Wraps a connected or connecting {@code channel}; {@code host} and {@code port} key the client's session cache. */
+    public TlsChannel open(SocketChannel channel, String host, int port) {
+        SSLEngine engine = context.createSSLEngine(host, port);
+        engine.setUseClientMode(client);
+        SSLParameters params = engine.getSSLParameters();
+        params.setProtocols(PROTOCOLS);
+        if (client) params.setEndpointIdentificationAlgorithm("HTTPS");
+        engine.setSSLParameters(params);
+        return new TlsChannel(channel, engine, pool);
+    }
+
+    public BufferPool pool() {
+        return pool;
+    }
+
+    private static KeyStore load(Path path, char[] password) throws IOException, GeneralSecurityException {
+        KeyStore ks = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(path)) {
+            ks.load(in, password);
+        }
+        return ks;
+    }
+}
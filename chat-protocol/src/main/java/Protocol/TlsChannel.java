@@ -0,0 +1,320 @@
+package Protocol;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TLS over a {@link SocketChannel} through an {@link SSLEngine}, in blocking or non-blocking
+ * mode. Call {@link #handshake()} until it returns {@link Handshake#DONE} before reading or
+ * writing; a non-blocking caller waits for what it asks for in between.
+ * <p>
+ * Network buffers are leased from a {@link BufferPool} only while they hold bytes, so an idle
+ * connection holds none. A record is decrypted straight into the caller's buffer when it has
+ * room for a whole one. One thread may read while another writes; a non-blocking writer must
+ * keep asking for {@code OP_WRITE} while {@link #hasPendingOutput()}.
+ */
+public final class TlsChannel implements ByteChannel, GatheringByteChannel {
+    private static final ByteBuffer[] NOTHING = {ByteBuffer.allocate(0)};
+
+    public enum Handshake { DONE, NEEDS_READ, NEEDS_WRITE }
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private final BufferPool pool;
+    private final int appBufferSize;
+    // Reading side. Both in write mode; null while empty.
+    private ByteBuffer netIn;
+    private ByteBuffer appIn;
+    private boolean inboundDone;
+    // Writing side, also used by a reader answering a post-handshake message.
+    private final ReentrantLock outLock = new ReentrantLock();
+    private ByteBuffer netOut;
+    // Wraps the buffer of a single-buffer write, so it does not allocate an array each call.
+    private final ByteBuffer[] single = new ByteBuffer[1];
+    private boolean started;
+    private volatile boolean handshaken;
+
+    TlsChannel(SocketChannel channel, SSLEngine engine, BufferPool pool) {
+        this.channel = channel;
+        this.engine = engine;
+        this.pool = pool;
+        this.appBufferSize = engine.getSession().getApplicationBufferSize();
+    }
+
+    public boolean isHandshaken() {
+        return handshaken;
+    }
+
+    /** Advances the handshake as far as the socket allows. */
+    public Handshake handshake() throws IOException {
+        if (handshaken) return Handshake.DONE;
+        outLock.lock();
+        try {
+            if (!started) {
+                engine.beginHandshake();
+                started = true;
+            }
+            if (!flush()) return Handshake.NEEDS_WRITE;
+            while (true) {
+                switch (engine.getHandshakeStatus()) {
+                    case NEED_TASK -> runTasks();
+                    case NEED_WRAP -> {
+                        wrap(NOTHING, 0, 1);
+                        if (!flush()) return Handshake.NEEDS_WRITE;
+                    }
+                    case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
+                        if (!unwrap(null)) {
+                            int n = fill();
+                            if (n < 0) throw new EOFException("Connection closed during TLS handshake.");
+                            if (n == 0) return Handshake.NEEDS_READ;
+                        }
+                    }
+                    default -> {
+                        handshaken = true;
+                        return Handshake.DONE;
+                    }
+                }
+            }
+        } finally {
+            outLock.unlock();
+        }
+    }
+
+    /** Decrypts every complete record that fits in {@code dst}; blocks only if none is buffered. */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!handshaken) throw new IllegalStateException("TLS handshake not finished.");
+        int total = 0;
+        while (true) {
+            if (appIn != null) {
+                total += drainAppIn(dst);
+                if (appIn != null || !dst.hasRemaining()) return total;
+            }
+            if (inboundDone) return total > 0 ? total : -1;
+            int before = dst.position();
+            if (unwrap(dst)) {
+                total += dst.position() - before;
+                continue;
+            }
+            if (total > 0) return total;
+            int n = fill();
+            if (n < 0) {
+                inboundDone = true;
+                return -1;
+            }
+            if (n == 0) return 0;
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        outLock.lock();
+        try {
+            single[0] = src;
+            return (int) write(single, 0, 1);
+        } finally {
+            single[0] = null;
+            outLock.unlock();
+        }
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+        return write(srcs, 0, srcs.length);
+    }
+
+    /**
+     * Encrypts as much of {@code srcs} as the socket takes. Bytes reported as consumed may still
+     * sit encrypted in a pending buffer; see {@link #hasPendingOutput()}.
+     */
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        if (!handshaken) throw new IllegalStateException("TLS handshake not finished.");
+        outLock.lock();
+        try {
+            if (!flush()) return 0;
+            long total = 0;
+            while (hasRemaining(srcs, offset, length)) {
+                int n = wrap(srcs, offset, length);
+                total += n;
+                if (!flush() || n == 0) break;
+            }
+            return total;
+        } finally {
+            outLock.unlock();
+        }
+    }
+
+    /** True while encrypted bytes wait for the socket; only ever after a non-blocking write. */
+    public boolean hasPendingOutput() {
+        return netOut != null;
+    }
+
+    /** True while bytes read from the socket wait here, decrypted or not. */
+    public boolean hasBufferedInput() {
+        return appIn != null || netIn != null;
+    }
+
+    /** Writes what is pending; true once nothing is. */
+    public boolean flushPending() throws IOException {
+        outLock.lock();
+        try {
+            return flush();
+        } finally {
+            outLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Sends {@code close_notify} if the channel is non-blocking and nobody is writing, then
+     * closes the socket. Leased buffers are not returned, since a reader or writer on another
+     * thread may still hold them.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isBlocking() && outLock.tryLock()) {
+            try {
+                engine.closeOutbound();
+                if (handshaken && channel.isOpen()) {
+                    wrap(NOTHING, 0, 1);
+                    flush();
+                }
+            } catch (IOException ignored) {
+            } finally {
+                outLock.unlock();
+            }
+        }
+        channel.close();
+    }
+
+    private int drainAppIn(ByteBuffer dst) {
+        appIn.flip();
+        int n = Math.min(appIn.remaining(), dst.remaining());
+        dst.put(dst.position(), appIn, appIn.position(), n);
+        dst.position(dst.position() + n);
+        appIn.position(appIn.position() + n);
+        appIn.compact();
+        if (appIn.position() == 0) {
+            pool.release(appIn);
+            appIn = null;
+        }
+        return n;
+    }
+
+    /** Reads from the socket into {@code netIn}. */
+    private int fill() throws IOException {
+        if (netIn == null) netIn = pool.acquire();
+        int n = channel.read(netIn);
+        if (netIn.position() == 0) {
+            pool.release(netIn);
+            netIn = null;
+        }
+        return n;
+    }
+
+    /**
+     * Unwraps one record from {@code netIn}, into {@code dst} when it can take a whole record and
+     * otherwise into {@code appIn}. False if no complete record is buffered.
+     */
+    private boolean unwrap(ByteBuffer dst) throws IOException {
+        if (netIn == null) return false;
+        ByteBuffer target = dst != null && dst.remaining() >= appBufferSize ? dst
+                : appIn != null ? appIn : (appIn = pool.acquire());
+        netIn.flip();
+        SSLEngineResult r;
+        try {
+            r = engine.unwrap(netIn, target);
+        } finally {
+            netIn.compact();
+            if (netIn.position() == 0) {
+                pool.release(netIn);
+                netIn = null;
+            }
+            if (appIn != null && appIn.position() == 0) {
+                pool.release(appIn);
+                appIn = null;
+            }
+        }
+        switch (r.getStatus()) {
+            case BUFFER_UNDERFLOW -> {
+                return false;
+            }
+            case BUFFER_OVERFLOW -> throw new SSLException("No room to decrypt a record.");
+            case CLOSED -> inboundDone = true;
+            default -> {
+            }
+        }
+        afterHandshakeMessage(r);
+        return true;
+    }
+
+    /** Wraps into {@code netOut}, which the caller then flushes. Caller holds outLock. */
+    private int wrap(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        if (netOut == null) netOut = pool.acquire();
+        SSLEngineResult r = engine.wrap(srcs, offset, length, netOut);
+        if (r.getStatus() == SSLEngineResult.Status.CLOSED && handshaken) throw new ClosedChannelException();
+        if (r.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW && netOut.position() == 0) {
+            throw new SSLException("No room to encrypt a record.");
+        }
+        if (r.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) runTasks();
+        return r.bytesConsumed();
+    }
+
+    /** Writes {@code netOut} to the socket; true once it is empty. Caller holds outLock. */
+    private boolean flush() throws IOException {
+        if (netOut == null) return true;
+        netOut.flip();
+        channel.write(netOut);
+        boolean done = !netOut.hasRemaining();
+        netOut.compact();
+        if (done) {
+            pool.release(netOut);
+            netOut = null;
+        }
+        return done;
+    }
+
+    // TLS 1.3 sends tickets and key updates after the handshake; answer whatever needs answering.
+    private void afterHandshakeMessage(SSLEngineResult r) throws IOException {
+        SSLEngineResult.HandshakeStatus hs = r.getHandshakeStatus();
+        if (hs == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+            runTasks();
+            hs = engine.getHandshakeStatus();
+        }
+        if (hs == SSLEngineResult.HandshakeStatus.NEED_WRAP && handshaken) {
+            outLock.lock();
+            try {
+                wrap(NOTHING, 0, 1);
+                flush();
+            } finally {
+                outLock.unlock();
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) task.run();
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] srcs, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (srcs[i].hasRemaining()) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,60 @@
+package Protocol;
+
+import java.nio.ByteBuffer;
+
+/** Unsigned LEB128 integers as used by the binary framing. */
+final class Varint {
+    static final int INCOMPLETE = -1;
+
+    private Varint() {
+    }
+
+    static int size(int v) {
+        int n = 1;
+        while ((v & ~0x7F) != 0) {
+            v >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    static int size(long v) {
+        int n = 1;
+        while ((v & ~0x7FL) != 0) {
+            v >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    static void put(ByteBuffer out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.put((byte) (v & 0x7F | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    static void put(ByteBuffer out, int v) {
+        while ((v & ~0x7F) != 0) {
+            out.put((byte) (v & 0x7F | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    /** Reads from {@code in}, or returns {@link #INCOMPLETE} if it ends mid-varint. */
+    static int get(ByteBuffer in) throws ProtocolException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!in.hasRemaining()) return INCOMPLETE;
+            byte b = in.get();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (v < 0) throw new ProtocolException("Varint out of range.");
+                return v;
+            }
+        }
+        throw new ProtocolException("Varint too long.");
+    }
+}
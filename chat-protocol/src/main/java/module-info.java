@@ -0,0 +1,4 @@
+/** Wire codec, compression and TLS. */
+module chat.protocol {
+    exports Protocol;
+}
@@ -0,0 +1,86 @@
+package Protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryDecoderTest {
+    private static final List<ChatMessage> MESSAGES = List.of(
+            new ChatMessage(MessageType.CHAT, "alice", 1_700_000_000_123L, "hello\tthere\nsecond line", 42, "#ops"),
+            new ChatMessage(MessageType.SYSTEM, "", 1_700_000_000_124L, "", 0, ChatMessage.LOBBY),
+            new ChatMessage(MessageType.CHAT, "bøb_ünïcode", 1L, "emoji 😀 and é", 1L << 40, "#x"),
+            new ChatMessage(MessageType.JOIN, "carol", 0, "", 0, ChatMessage.LOBBY));
+
+    @Test
+    void roundTripsEveryVariant() throws ProtocolException {
+        for (boolean sequenced : new boolean[] {false, true}) {
+            for (boolean channels : new boolean[] {false, true}) {
+                ByteBuffer buf = ByteBuffer.allocate(4096);
+                BinaryEncoder encoder = new BinaryEncoder(sequenced, channels);
+                for (ChatMessage m : MESSAGES) encoder.encode(m, buf);
+                buf.flip();
+                BinaryDecoder decoder = new BinaryDecoder(sequenced, channels);
+                for (ChatMessage m : MESSAGES) {
+                    ChatMessage expected = new ChatMessage(m.type(), m.from(), m.timestamp(), m.body(),
+                            sequenced ? m.seq() : 0, channels ? m.channel() : ChatMessage.LOBBY);
+                    assertEquals(expected, decoder.decode(buf).toMessage());
+                }
+                assertNull(decoder.decode(buf));
+            }
+        }
+    }
+
+    @Test
+    void waitsForTheRestOfASplitFrame() throws ProtocolException {
+        ByteBuffer whole = ByteBuffer.allocate(256);
+        new BinaryEncoder(true, true).encode(MESSAGES.getFirst(), whole);
+        whole.flip();
+        BinaryDecoder decoder = new BinaryDecoder(true, true);
+        ByteBuffer in = ByteBuffer.allocate(256);
+        List<ChatMessage> out = new ArrayList<>();
+        while (whole.hasRemaining()) {
+            in.put(whole.get()).flip();
+            Frame f = decoder.decode(in);
+            if (f == null) assertEquals(0, in.position(), "an incomplete frame must not be consumed");
+            else out.add(f.toMessage());
+            in.compact();
+        }
+        assertEquals(List.of(MESSAGES.getFirst()), out);
+    }
+
+    @Test
+    void rejectsAFrameOverTheLimit() {
+        ByteBuffer in = ByteBuffer.allocate(8);
+        in.put((byte) 0x81).put((byte) 0x80).put((byte) 0x40).flip();
+        assertThrows(ProtocolException.class, () -> new BinaryDecoder().decode(in));
+    }
+
+    @Test
+    void rejectsANicknameLengthPastTheFrame() {
+        // A five-byte length near Integer.MAX_VALUE, which overflows when added to an offset.
+        byte[] frame = {15, 3, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+        assertThrows(ProtocolException.class, () -> new BinaryDecoder().decode(ByteBuffer.wrap(frame)));
+        byte[] past = {10, 3, 9, 'a', 'b', 0, 0, 0, 0, 0, 0};
+        assertThrows(ProtocolException.class, () -> new BinaryDecoder().decode(ByteBuffer.wrap(past)));
+    }
+
+    @Test
+    void rejectsAChannelLengthPastTheFrame() {
+        byte[] frame = {15, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        assertThrows(ProtocolException.class, () -> new BinaryDecoder(false, true).decode(ByteBuffer.wrap(frame)));
+        byte[] past = {12, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 5, '#'};
+        assertThrows(ProtocolException.class, () -> new BinaryDecoder(false, true).decode(ByteBuffer.wrap(past)));
+    }
+
+    @Test
+    void rejectsAFrameTooShortForItsTimestamp() {
+        byte[] frame = {6, 3, 1, 'a', 0, 0, 0};
+        assertThrows(ProtocolException.class, () -> new BinaryDecoder().decode(ByteBuffer.wrap(frame)));
+    }
+}
@@ -0,0 +1,96 @@
+package Protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockCompressionTest {
+
+    @Test
+    void roundTripsRawAndDeflatedBlocksOnOneStream() throws ProtocolException {
+        BlockDeflater deflater = Compression.DEFLATE.newDeflater(Compression.DEFAULT_THRESHOLD);
+        ByteBuffer wire = ByteBuffer.allocate(1 << 20);
+        ByteBuffer expected = ByteBuffer.allocate(1 << 20);
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            // Short lines stay under the threshold and go raw; the rest deflate against a shared dictionary.
+            String line = i % 3 == 0 ? "hi " + i + "\n" : "CHAT\tuser" + i % 5 + "\t" + i + "\tthe build is green again " + random.nextInt(100) + "\n";
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            expected.put(bytes);
+            deflater.write(ByteBuffer.wrap(bytes), wire);
+        }
+        byte[] incompressible = new byte[BlockDeflater.MAX_PLAIN];
+        random.nextBytes(incompressible);
+        expected.put(incompressible);
+        deflater.write(ByteBuffer.wrap(incompressible), wire);
+        deflater.end();
+        wire.flip();
+        expected.flip();
+        assertTrue(deflater.wireBytes() < deflater.plainBytes() + 600 * BlockDeflater.HEADER);
+
+        assertArrayEquals(bytes(expected), inflate(wire, 1 << 20, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void inflatesByteByByteIntoASmallBuffer() throws ProtocolException {
+        BlockDeflater deflater = Compression.DEFLATE.newDeflater(0);
+        ByteBuffer wire = ByteBuffer.allocate(64 * 1024);
+        byte[] text = "lorem ipsum dolor sit amet ".repeat(200).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer[] frames = {ByteBuffer.wrap(text, 0, 1000), ByteBuffer.wrap(text, 1000, text.length - 1000)};
+        deflater.write(frames, 0, 2, wire);
+        deflater.write(ByteBuffer.wrap(text), wire);
+        deflater.end();
+        wire.flip();
+
+        byte[] both = new byte[text.length * 2];
+        System.arraycopy(text, 0, both, 0, text.length);
+        System.arraycopy(text, 0, both, text.length, text.length);
+        assertArrayEquals(both, inflate(wire, 7, 1));
+    }
+
+    @Test
+    void rejectsAnOversizedBlockHeader() {
+        ByteBuffer in = ByteBuffer.wrap(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0});
+        assertThrows(ProtocolException.class, () -> Compression.DEFLATE.newInflater().read(in, ByteBuffer.allocate(64)));
+    }
+
+    @Test
+    void rejectsCorruptDeflateData() {
+        ByteBuffer in = ByteBuffer.wrap(new byte[] {0, 0, 9, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+        assertThrows(ProtocolException.class, () -> Compression.DEFLATE.newInflater().read(in, ByteBuffer.allocate(64)));
+    }
+
+    /** Feeds {@code wire} at most {@code chunk} bytes at a time into an output of {@code room} bytes. */
+    private static byte[] inflate(ByteBuffer wire, int room, int chunk) throws ProtocolException {
+        BlockInflater inflater = Compression.DEFLATE.newInflater();
+        ByteBuffer in = ByteBuffer.allocate(wire.remaining());
+        ByteBuffer out = ByteBuffer.allocate(room);
+        ByteBuffer plain = ByteBuffer.allocate(1 << 21);
+        in.flip();
+        while (wire.hasRemaining() || in.hasRemaining() || inflater.draining()) {
+            in.compact();
+            int n = Math.min(chunk, wire.remaining());
+            in.put(wire.slice(wire.position(), n));
+            wire.position(wire.position() + n);
+            in.flip();
+            int before = in.remaining();
+            inflater.read(in, out.clear());
+            plain.put(out.flip());
+            if (n == 0 && out.position() == 0 && in.remaining() == before && !inflater.draining()) break;
+        }
+        inflater.end();
+        return bytes(plain.flip());
+    }
+
+    private static byte[] bytes(ByteBuffer b) {
+        byte[] a = new byte[b.remaining()];
+        b.get(a);
+        return a;
+    }
+}
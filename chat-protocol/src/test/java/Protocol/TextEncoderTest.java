@@ -0,0 +1,69 @@
+package Protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TextEncoderTest {
+
+    @Test
+    void roundTripsThroughLineDecoder() {
+        ChatMessage m = new ChatMessage(MessageType.CHAT, "alice", 1_700_000_000_123L, "héllo wörld 😀", 7, "#ops");
+        for (boolean sequenced : new boolean[] {false, true}) {
+            for (boolean channels : new boolean[] {false, true}) {
+                ByteBuffer buf = ByteBuffer.allocate(256);
+                new TextEncoder(sequenced, channels).encode(m, buf);
+                buf.flip();
+                ChatMessage expected = new ChatMessage(m.type(), m.from(), m.timestamp(), m.body(),
+                        sequenced ? m.seq() : 0, channels ? m.channel() : ChatMessage.LOBBY);
+                assertEquals(expected, new LineDecoder(sequenced, channels).decode(buf).toMessage());
+                assertFalse(buf.hasRemaining());
+            }
+        }
+    }
+
+    @Test
+    void writesEveryLongAsDecimal() {
+        for (long ts : new long[] {0, 9, 10, -1, -10, Long.MAX_VALUE, ChatMessage.NO_TIMESTAMP}) {
+            ByteBuffer buf = ByteBuffer.allocate(64);
+            new TextEncoder().encode(new ChatMessage(MessageType.SYSTEM, "", ts, "x"), buf);
+            assertEquals("SYSTEM\t\t" + ts + "\tx\n", new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void replacesTabsAndLineBreaksInFields() {
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        new TextEncoder().encode(new ChatMessage(MessageType.CHAT, "a\tb", 5, "one\ttwo\r\nthree"), buf);
+        assertEquals("CHAT\ta b\t5\tone two  three\n", new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writesBareJoinAndLeaveInTheShortForm() {
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        new TextEncoder(true, true).encode(new ChatMessage(MessageType.JOIN, "bob", 5, ""), buf);
+        assertEquals("JOIN\tbob\n", new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void refusesWhatDoesNotFitWithoutWriting() {
+        ByteBuffer buf = ByteBuffer.allocate(16);
+        assertFalse(new TextEncoder().encode(new ChatMessage(MessageType.CHAT, "alice", 5, "x".repeat(64)), buf));
+        assertEquals(0, buf.position());
+    }
+
+    @Test
+    void decodesLinesSplitAcrossReadsAndCrLf() {
+        LineDecoder decoder = new LineDecoder();
+        ByteBuffer in = ByteBuffer.wrap("CHAT\tbob\t12\thi\r".getBytes(StandardCharsets.UTF_8));
+        assertNull(decoder.decode(in));
+        assertEquals(0, in.position());
+        in = ByteBuffer.wrap("CHAT\tbob\t12\thi\r\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(new ChatMessage(MessageType.CHAT, "bob", 12, "hi"), decoder.decode(in).toMessage());
+    }
+}
@@ -0,0 +1,65 @@
+package Server;
+
+import Protocol.Tls;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Reference server for the chat protocol.
+ * <pre>
+ *   java Server.ChatServer [port] [nio|virtual|platform] [selectorThreads]
+ * </pre>
+ * {@code nio} (default) spreads connections over selector threads; {@code virtual} and
+ * {@code platform} run a blocking reader and writer thread per connection.
+ * <p>
+ * {@code -Dchat.tls.keystore=<file.p12>} serves TLS only, with the key in that PKCS#12 file
+ * ({@code -Dchat.tls.password}, default {@code changeit}); {@code selfsigned} generates one in
+ * the temp directory, which clients then pass as {@code chat.tls.truststore}.
+ */
+public final class ChatServer {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String mode = args.length > 1 ? args[1].toLowerCase(Locale.ROOT) : "nio";
+        int loops = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        String keystore = System.getProperty("chat.tls.keystore");
+        Tls tls = null;
+        if (keystore != null) {
+            char[] password = System.getProperty("chat.tls.password", "changeit").toCharArray();
+            Path path = "selfsigned".equals(keystore)
+                    ? Tls.selfSigned(Path.of(System.getProperty("java.io.tmpdir"), "chat-tls"), password)
+                    : Path.of(keystore);
+            tls = Tls.server(path, password);
+            System.out.println("TLS keystore " + path);
+        }
+
+        Hub hub = new Hub();
+        switch (mode) {
+            case "nio" -> new NioServer(hub, port, loops, tls).start();
+            case "virtual" -> new ThreadedServer(hub, port, Thread.ofVirtual().name("peer-", 0).factory(), tls).start();
+            case "platform" -> new ThreadedServer(hub, port, platformThreads(), tls).start();
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        System.out.printf("Chat server listening on %d (%s%s)%n", port, mode, tls == null ? "" : ", tls");
+
+        long lastIn = 0;
+        long lastOut = 0;
+        while (true) {
+            Thread.sleep(5000);
+            long in = hub.messagesIn.sum();
+            long out = hub.messagesOut.sum();
+            System.out.printf(Locale.ROOT, "online=%d in=%.0f/s out=%.0f/s%n",
+                    hub.online(), (in - lastIn) / 5.0, (out - lastOut) / 5.0);
+            lastIn = in;
+            lastOut = out;
+        }
+    }
+
+    private static ThreadFactory platformThreads() {
+        return Thread.ofPlatform().name("peer-", 0).daemon(true).factory();
+    }
+}
@@ -0,0 +1,261 @@
+package Server;
+
+import Protocol.Capabilities;
+import Protocol.ChatMessage;
+import Protocol.Compression;
+import Protocol.Frame;
+import Protocol.Framing;
+import Protocol.MessageType;
+
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Protocol state shared by every transport: the JOIN handshake, the nickname registry and
+ * broadcast. A broadcast is encoded once and handed to each {@link Subscribers} group, which
+ * fans the shared buffer out to its own connections.
+ * <p>
+ * Broadcasts are numbered and the most recent {@link #HISTORY} are kept, so a client that
+ * negotiated {@code seq} can reconnect with its token and last sequence number, take over its
+ * old nickname and have the gap replayed before it sees live traffic. Clients that also
+ * negotiated {@code ack} number their lines; each peer's reads are answered with one cumulative
+ * {@code ACK}, and retransmissions of lines already relayed are acknowledged but dropped. The
+ * numbering survives a resume, including one after the old connection was already closed.
+ * <p>
+ * A client may also ask for {@code compress}; {@code chat.compress=none} turns it down. Broadcasts
+ * are still encoded once, but each connection compresses its own stream, so it costs CPU and a
+ * few hundred kilobytes of zlib state per peer.
+ * <p>
+ * {@code PING}s from clients that negotiated {@code ping} are answered with a {@code PONG} at once;
+ * they count as messages in but are never broadcast.
+ * <p>
+ * Clients that negotiate {@code channels} may also be in up to {@link #MAX_ROOMS} rooms, listed
+ * in the handshake or joined later with a {@code JOIN} naming the room. Room lines share the
+ * broadcast numbering and history; fan-out and replay skip peers that are not members.
+ */
+final class Hub {
+    private static final Pattern NICK = Pattern.compile("[A-Za-z0-9_]{3,24}");
+    static final int HISTORY = Integer.getInteger("chat.history", 1024);
+    private static final SecureRandom TOKENS = new SecureRandom();
+    private static final int RETIRED = 4096;
+    private static final boolean COMPRESS = !"none".equals(System.getProperty("chat.compress"));
+    private static final int MAX_ROOMS = Integer.getInteger("chat.rooms.max", 1000);
+    private static final int COMPRESS_THRESHOLD = Integer.getInteger("chat.compress.threshold", Compression.DEFAULT_THRESHOLD);
+
+    interface Subscribers {
+        /** Delivers {@code m} to every joined peer in the group. Called under the publish lock. */
+        void publish(Outbound m);
+    }
+
+    private final ConcurrentHashMap<String, Peer> byNick = new ConcurrentHashMap<>();
+    private final List<Subscribers> groups = new CopyOnWriteArrayList<>();
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Outbound[] history = new Outbound[HISTORY];
+    private long lastSeq;
+    // Recently closed sequenced peers by nick, so a late resume still sees its token and numbering.
+    private final LinkedHashMap<String, Peer> retired = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Peer> eldest) {
+            return size() > RETIRED;
+        }
+    };
+    final LongAdder messagesIn = new LongAdder();
+    final LongAdder messagesOut = new LongAdder();
+
+    void addGroup(Subscribers group) {
+        groups.add(group);
+    }
+
+    int online() {
+        return byNick.size();
+    }
+
+    void onFrame(Peer p, Frame f) {
+        messagesIn.increment();
+        if (!p.isJoined()) {
+            onJoin(p, f);
+            return;
+        }
+        switch (f.type()) {
+            case CHAT -> {
+                if (p.isAcked() && f.seq() > 0 && !p.accept(f.seq())) return;
+                String room = f.channel();
+                if (!room.isEmpty() && !p.rooms().contains(room)) {
+                    p.send(new Outbound(new ChatMessage(MessageType.ERROR, "", System.currentTimeMillis(),
+                            "You are not in " + room + ".", 0, room)));
+                    return;
+                }
+                String body = f.body();
+                if (body.length() > ChatMessage.MAX_BODY) body = body.substring(0, ChatMessage.MAX_BODY);
+                broadcast(new ChatMessage(MessageType.CHAT, p.nick(), f.timestamp(), body, 0, room));
+            }
+            case JOIN -> {
+                if (!f.channel().isEmpty()) joinRoom(p, f.channel());
+            }
+            case LEAVE -> {
+                if (f.channel().isEmpty()) p.closeAfterFlush();
+                else leaveRoom(p, f.channel());
+            }
+            case PING -> p.send(new Outbound(new ChatMessage(MessageType.PONG, "", f.timestamp(), "")));
+            default -> {
+            }
+        }
+    }
+
+    /** Called by a transport after it has passed one read's worth of frames to {@link #onFrame}. */
+    void afterRead(Peer p) {
+        if (p.isAcked() && p.takeAckDue()) {
+            p.send(new Outbound(new ChatMessage(MessageType.ACK, "", System.currentTimeMillis(), "", p.lastClientSeq())));
+        }
+    }
+
+    void onClosed(Peer p) {
+        String nick = p.nick();
+        if (nick == null || !byNick.remove(nick, p)) return;
+        if (p.token() != null) {
+            synchronized (retired) {
+                retired.put(nick, p);
+            }
+        }
+        broadcast(system(nick + " left the chat."));
+    }
+
+    void broadcast(ChatMessage m) {
+        // One lock keeps every group's queue in the same global order as the sequence numbers.
+        publishLock.lock();
+        try {
+            long seq = ++lastSeq;
+            Outbound out = new Outbound(m.withSeq(seq));
+            history[(int) (seq % HISTORY)] = out;
+            for (Subscribers g : groups) g.publish(out);
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    private void onJoin(Peer p, Frame f) {
+        if (f.type() != MessageType.JOIN) {
+            reject(p, "Expected JOIN.");
+            return;
+        }
+        String nick = f.from();
+        if (!NICK.matcher(nick).matches() || "SYSTEM".equalsIgnoreCase(nick)) {
+            reject(p, "Nickname must be 3-24 letters/digits/underscore and not 'SYSTEM'.");
+            return;
+        }
+        Capabilities offered = Capabilities.parse(f.body());
+        boolean sequenced = offered.isSet(Capabilities.SEQ);
+        String token = offered.get(Capabilities.TOKEN);
+        Peer previous = byNick.putIfAbsent(nick, p);
+        if (previous != null) {
+            // The old connection may be a half-open socket the server has not noticed yet.
+            if (!sequenced || token == null || !token.equals(previous.token()) || !byNick.replace(nick, previous, p)) {
+                reject(p, "Nickname '" + nick + "' is already in use.");
+                return;
+            }
+            previous.evict();
+        }
+        boolean resumed = previous != null;
+        Peer prior = previous;
+        if (prior == null && sequenced && token != null) {
+            synchronized (retired) {
+                Peer r = retired.get(nick);
+                if (r != null && token.equals(r.token())) prior = retired.remove(nick);
+            }
+        }
+
+        Capabilities accepted = Capabilities.none();
+        Framing framing = Framing.fromWireName(offered.get(Capabilities.FRAMING));
+        if (framing != Framing.TEXT) accepted.with(Capabilities.FRAMING, framing.wireName());
+        Compression compression = COMPRESS ? Compression.fromWireName(offered.get(Capabilities.COMPRESS)) : Compression.NONE;
+        if (compression != Compression.NONE) accepted.with(Capabilities.COMPRESS, compression.wireName());
+        if (offered.isSet(Capabilities.PING)) accepted.with(Capabilities.PING, "1");
+        boolean channels = offered.isSet(Capabilities.CHANNELS);
+        if (channels) {
+            accepted.with(Capabilities.CHANNELS, "1");
+            // Quietly, and before any replay, so a reconnect does not announce itself in every room.
+            for (String room : offered.getList(Capabilities.ROOMS)) {
+                if (ChatMessage.isRoomName(room) && p.rooms().size() < MAX_ROOMS) p.rooms().add(room);
+            }
+            if (!p.rooms().isEmpty()) accepted.with(Capabilities.ROOMS, String.join(",", p.rooms()));
+        }
+        if (sequenced) {
+            p.token(prior != null ? token : Long.toHexString(TOKENS.nextLong()));
+            accepted.with(Capabilities.SEQ, "1").with(Capabilities.EPOCH, epoch).with(Capabilities.TOKEN, p.token());
+            if (offered.isSet(Capabilities.ACK)) {
+                p.acked(true);
+                if (prior != null) p.resumeFrom(prior);
+                accepted.with(Capabilities.ACK, "1");
+            }
+        }
+
+        publishLock.lock();
+        try {
+            if (!accepted.isEmpty()) {
+                p.send(new Outbound(new ChatMessage(MessageType.CAPS, "", System.currentTimeMillis(), accepted.toString())));
+                p.switchFraming(framing, sequenced, channels);
+                if (compression != Compression.NONE) p.startCompression(compression, COMPRESS_THRESHOLD);
+            }
+            String greeting = resumed ? "Welcome back, " : "Welcome, ";
+            p.send(new Outbound(system(greeting + nick + ". " + byNick.size() + " online.")));
+            if (sequenced && offered.get(Capabilities.RESUME) != null) replay(p, offered);
+            // Joined under the lock: every later broadcast reaches p, every earlier one was replayed.
+            p.joined(nick);
+        } finally {
+            publishLock.unlock();
+        }
+        if (!resumed) broadcast(system(nick + " joined the chat."));
+    }
+
+    /** Sends p the broadcasts it missed. Caller holds the publish lock. */
+    private void replay(Peer p, Capabilities offered) {
+        // After a server restart the client's numbers mean nothing here; everything retained is new to it.
+        long from = epoch.equals(offered.get(Capabilities.EPOCH)) ? offered.getLong(Capabilities.RESUME, lastSeq) + 1 : 1;
+        long oldest = Math.max(1, lastSeq - HISTORY + 1);
+        if (from < oldest) {
+            p.send(new Outbound(system((oldest - from) + " earlier messages are no longer available.")));
+            from = oldest;
+        }
+        for (long seq = from; seq <= lastSeq; seq++) {
+            Outbound m = history[(int) (seq % HISTORY)];
+            if (p.receives(m)) p.send(m);
+        }
+    }
+
+    private void joinRoom(Peer p, String room) {
+        if (!ChatMessage.isRoomName(room)) {
+            p.send(new Outbound(new ChatMessage(MessageType.ERROR, "", System.currentTimeMillis(),
+                    "Room names are '#' and 1-32 letters/digits/underscore/dash.")));
+            return;
+        }
+        if (p.rooms().contains(room)) return;
+        if (p.rooms().size() >= MAX_ROOMS) {
+            p.send(new Outbound(new ChatMessage(MessageType.ERROR, "", System.currentTimeMillis(),
+                    "You are already in " + MAX_ROOMS + " rooms.", 0, room)));
+            return;
+        }
+        p.rooms().add(room);
+        broadcast(system(p.nick() + " joined " + room + ".").withChannel(room));
+    }
+
+    private void leaveRoom(Peer p, String room) {
+        if (p.rooms().remove(room)) broadcast(system(p.nick() + " left " + room + ".").withChannel(room));
+    }
+
+    private void reject(Peer p, String reason) {
+        p.send(new Outbound(new ChatMessage(MessageType.ERROR, "", System.currentTimeMillis(), reason)));
+        p.closeAfterFlush();
+    }
+
+    private static ChatMessage system(String text) {
+        return new ChatMessage(MessageType.SYSTEM, "", System.currentTimeMillis(), text);
+    }
+}
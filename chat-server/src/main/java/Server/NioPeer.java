@@ -0,0 +1,219 @@
+package Server;
+
+import Protocol.BlockDeflater;
+import Protocol.Frame;
+import Protocol.FrameReader;
+import Protocol.TlsChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * A connection owned by one {@link ServerLoop}; every method runs on that loop's thread. With
+ * TLS, the handshake runs first on whichever events the engine waits for.
+ */
+final class NioPeer extends Peer {
+    private static final int READ_BUFFER = 16 * 1024;
+    private static final long MAX_QUEUED_BYTES = 4L * 1024 * 1024;
+    private static final int GATHER = 64;
+
+    private final ServerLoop loop;
+    private final SocketChannel channel;
+    private final TlsChannel tls;
+    private final Hub hub;
+    private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[GATHER];
+    private long queuedBytes;
+    // With compression: the first rawAhead queued buffers predate it, the rest go out in blocks.
+    private BlockDeflater deflater;
+    private ByteBuffer block;
+    private int rawAhead;
+    private boolean closing;
+    private boolean closed;
+    private boolean dirty;
+    SelectionKey key;
+    int index;
+
+    NioPeer(ServerLoop loop, SocketChannel channel, TlsChannel tls, Hub hub) {
+        super(ByteBuffer.allocateDirect(READ_BUFFER));
+        this.loop = loop;
+        this.channel = channel;
+        this.tls = tls;
+        this.hub = hub;
+    }
+
+    @Override
+    void send(ByteBuffer shared) {
+        if (closed) return;
+        out.add(shared);
+        queuedBytes += shared.remaining();
+        if (queuedBytes > MAX_QUEUED_BYTES) {
+            // A subscriber this far behind would pin shared buffers forever; drop it.
+            close();
+            return;
+        }
+        if (!dirty) {
+            dirty = true;
+            loop.markDirty(this);
+        }
+    }
+
+    @Override
+    void compressFromHere(BlockDeflater d) {
+        deflater = d;
+        block = ByteBuffer.allocateDirect(BlockDeflater.maxBlockSize(BlockDeflater.MAX_PLAIN));
+        rawAhead = out.size();
+    }
+
+    @Override
+    void closeAfterFlush() {
+        closing = true;
+        if (!dirty) {
+            dirty = true;
+            loop.markDirty(this);
+        }
+    }
+
+    void onReadable() {
+        try {
+            if (handshaking()) return;
+            FrameReader in = inbound();
+            int n;
+            // TLS may have decrypted more than fitted; the selector will not report it again.
+            do {
+                n = tls == null ? channel.read(in.readTarget()) : tls.read(in.readTarget());
+                if (n < 0) {
+                    close();
+                    return;
+                }
+                in.begin();
+                Frame f;
+                while (!closed && !closing && (f = in.next()) != null) hub.onFrame(this, f);
+                hub.afterRead(this);
+                if (!in.end()) close();
+            } while (n > 0 && !closed && tls != null && tls.hasBufferedInput());
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    void flush() {
+        dirty = false;
+        if (closed) return;
+        try {
+            if (tls != null && !tls.isHandshaken()) {
+                if (handshaking()) return;
+                // The client's JOIN may have come with its Finished; no read event will announce it.
+                if (tls.hasBufferedInput()) onReadable();
+                if (closed) return;
+            }
+            boolean drained;
+            if (deflater == null) {
+                drained = writeRaw(out.size()) == 0;
+            } else {
+                rawAhead = writeRaw(rawAhead);
+                drained = rawAhead == 0 && writeBlocks();
+            }
+            drained &= tls == null || tls.flushPending();
+            if (drained) {
+                key.interestOps(SelectionKey.OP_READ);
+                if (closing) close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /** Advances the TLS handshake if it is under way; true until it is done. */
+    private boolean handshaking() throws IOException {
+        if (tls == null || tls.isHandshaken()) return false;
+        TlsChannel.Handshake h = tls.handshake();
+        key.interestOps(h == TlsChannel.Handshake.NEEDS_WRITE ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        return h != TlsChannel.Handshake.DONE;
+    }
+
+    /** Writes the first {@code count} queued buffers as they are; returns how many are left. */
+    private int writeRaw(int count) throws IOException {
+        while (count > 0) {
+            int n = 0;
+            long attempted = 0;
+            for (ByteBuffer b : out) {
+                gather[n++] = b;
+                attempted += b.remaining();
+                if (n == Math.min(GATHER, count)) break;
+            }
+            long written = tls == null ? channel.write(gather, 0, n) : tls.write(gather, 0, n);
+            queuedBytes -= written;
+            while (count > 0 && !out.peekFirst().hasRemaining()) {
+                out.pollFirst();
+                count--;
+            }
+            Arrays.fill(gather, 0, n, null);
+            if (written < attempted) break;
+        }
+        return count;
+    }
+
+    /** Packs queued buffers into one block per gather and writes it; true once all are out. */
+    private boolean writeBlocks() throws IOException {
+        while (true) {
+            if (block.position() == 0) {
+                if (out.isEmpty()) return true;
+                int n = 0;
+                int plain = 0;
+                for (ByteBuffer b : out) {
+                    if (n == GATHER || n > 0 && plain + b.remaining() > BlockDeflater.MAX_PLAIN) break;
+                    gather[n++] = b;
+                    plain += b.remaining();
+                }
+                deflater.write(gather, 0, n, block);
+                for (int i = 0; i < n; i++) out.pollFirst();
+                queuedBytes -= plain;
+                Arrays.fill(gather, 0, n, null);
+            }
+            block.flip();
+            if (tls == null) channel.write(block);
+            else tls.write(block);
+            boolean sent = !block.hasRemaining();
+            block.compact();
+            if (!sent) return false;
+        }
+    }
+
+    @Override
+    void close() {
+        if (closed) return;
+        closed = true;
+        out.clear();
+        inbound().endInflating();
+        if (deflater != null) deflater.end();
+        if (key != null) key.cancel();
+        try {
+            if (tls != null) tls.close();
+            else channel.close();
+        } catch (IOException ignored) {
+        }
+        loop.remove(this);
+        hub.onClosed(this);
+    }
+
+    @Override
+    void evict() {
+        loop.execute(this::close);
+    }
+
+    @Override
+    String remoteAddress() {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+}
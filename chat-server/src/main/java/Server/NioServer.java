@@ -0,0 +1,54 @@
+package Server;
+
+import Protocol.Tls;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/** Accepts on a dedicated thread and deals connections round-robin to {@code loops} selector threads. */
+final class NioServer {
+    private final Hub hub;
+    private final ServerLoop[] loops;
+    private final ServerSocketChannel server;
+
+    NioServer(Hub hub, int port, int loopCount, Tls tls) throws IOException {
+        this.hub = hub;
+        this.loops = new ServerLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new ServerLoop(hub, "ServerLoop-" + i, tls);
+            hub.addGroup(loops[i]);
+        }
+        server = ServerSocketChannel.open();
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(new InetSocketAddress(port), 4096);
+    }
+
+    void start() {
+        for (ServerLoop l : loops) l.start();
+        Thread acceptor = new Thread(this::acceptLoop, "ServerAccept");
+        acceptor.start();
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (server.isOpen()) {
+            try {
+                SocketChannel ch = server.accept();
+                loops[next].adopt(ch);
+                next = (next + 1) % loops.length;
+            } catch (IOException e) {
+                if (!server.isOpen()) return;
+                // Typically EMFILE under a connection storm; back off instead of spinning.
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package Server;
+
+import Protocol.ChatMessage;
+import Protocol.Framing;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A message encoded at most once per wire format into a read-only buffer that every subscriber
+ * shares. Subscribers write from their own {@link ByteBuffer#duplicate()} so positions never clash.
+ */
+final class Outbound {
+    private final ChatMessage message;
+    // Indexed by framing ordinal * 4 + (sequenced ? 2 : 0) + (channels ? 1 : 0).
+    private final AtomicReferenceArray<ByteBuffer> encoded = new AtomicReferenceArray<>(Framing.values().length * 4);
+
+    Outbound(ChatMessage message) {
+        this.message = message;
+    }
+
+    ChatMessage message() {
+        return message;
+    }
+
+    /** The lobby, or the room the message is addressed to. */
+    String channel() {
+        return message.channel();
+    }
+
+    ByteBuffer bytes(Framing framing, boolean sequenced, boolean channels) {
+        int i = framing.ordinal() * 4 + (sequenced ? 2 : 0) + (channels ? 1 : 0);
+        ByteBuffer b = encoded.get(i);
+        if (b == null) {
+            b = encode(framing, sequenced, channels);
+            encoded.set(i, b);
+        }
+        return b.duplicate();
+    }
+
+    // Racing threads may both encode; the results are identical, so the last write wins harmlessly.
+    private ByteBuffer encode(Framing framing, boolean sequenced, boolean channels) {
+        int size = 256;
+        while (true) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(size);
+            if (framing.newEncoder(sequenced, channels).encode(message, buf)) return buf.flip().asReadOnlyBuffer();
+            size *= 4;
+        }
+    }
+}
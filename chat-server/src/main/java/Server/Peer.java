@@ -0,0 +1,151 @@
+package Server;
+
+import Protocol.BlockDeflater;
+import Protocol.Compression;
+import Protocol.FrameReader;
+import Protocol.Framing;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** One client connection as seen by the {@link Hub}, independent of how its socket is driven. */
+abstract class Peer {
+    private volatile Framing framing = Framing.TEXT;
+    private volatile boolean sequenced;
+    private volatile boolean channels;
+    // Written by the thread reading this peer, read by every fan-out.
+    private final Set<String> rooms = ConcurrentHashMap.newKeySet();
+    private final FrameReader inbound;
+    private volatile String nick;
+    private volatile String token;
+    private volatile boolean acked;
+    // Highest client sequence number relayed; written only by the thread reading this peer.
+    private volatile long lastClientSeq;
+    private boolean ackDue;
+
+    /** {@code readBuf} bounds the largest frame this peer may send. */
+    Peer(ByteBuffer readBuf) {
+        inbound = new FrameReader(readBuf, Framing.TEXT.newDecoder());
+    }
+
+    String nick() {
+        return nick;
+    }
+
+    void joined(String nick) {
+        this.nick = nick;
+    }
+
+    boolean isJoined() {
+        return nick != null;
+    }
+
+    /** Resume secret issued at JOIN; null for clients that did not negotiate sequencing. */
+    String token() {
+        return token;
+    }
+
+    void token(String token) {
+        this.token = token;
+    }
+
+    boolean isAcked() {
+        return acked;
+    }
+
+    void acked(boolean acked) {
+        this.acked = acked;
+    }
+
+    long lastClientSeq() {
+        return lastClientSeq;
+    }
+
+    /** Continues the numbering of the connection this one resumes. */
+    void resumeFrom(Peer previous) {
+        lastClientSeq = previous.lastClientSeq;
+    }
+
+    /**
+     * Records that client line {@code seq} arrived and returns false if it was already relayed,
+     * i.e. it is a retransmission. Either way an acknowledgement becomes due.
+     */
+    boolean accept(long seq) {
+        ackDue = true;
+        if (seq <= lastClientSeq) return false;
+        lastClientSeq = seq;
+        return true;
+    }
+
+    /** Returns whether an acknowledgement is owed and clears the flag. */
+    boolean takeAckDue() {
+        boolean due = ackDue;
+        ackDue = false;
+        return due;
+    }
+
+    Framing framing() {
+        return framing;
+    }
+
+    boolean isSequenced() {
+        return sequenced;
+    }
+
+    boolean hasChannels() {
+        return channels;
+    }
+
+    /** Switches both directions; later frames in the current read buffer use the new decoder. */
+    void switchFraming(Framing f, boolean sequenced, boolean channels) {
+        framing = f;
+        this.sequenced = sequenced;
+        this.channels = channels;
+        inbound.decoder(f.newDecoder(sequenced, channels));
+    }
+
+    Set<String> rooms() {
+        return rooms;
+    }
+
+    /** Whether {@code m} is for the lobby or for a room this peer is in. */
+    boolean receives(Outbound m) {
+        String c = m.channel();
+        return c.isEmpty() || rooms.contains(c);
+    }
+
+    /**
+     * Compresses everything sent after what is already queued, and inflates everything read after
+     * the current frame. Called on the reading thread, while handling the frame that negotiated it.
+     */
+    void startCompression(Compression c, int threshold) {
+        inbound.startInflating(c);
+        compressFromHere(c.newDeflater(threshold));
+    }
+
+    /** Socket reads go to {@link FrameReader#readTarget()}; reading thread only. */
+    FrameReader inbound() {
+        return inbound;
+    }
+
+    void send(Outbound m) {
+        send(m.bytes(framing, sequenced, channels));
+    }
+
+    /** Queues a shared read-only buffer for writing. Must not block. */
+    abstract void send(ByteBuffer shared);
+
+    /** Writes later queued buffers through {@code d}; those already queued go out as they are. */
+    abstract void compressFromHere(BlockDeflater d);
+
+    /** Closes after already-queued bytes are written. */
+    abstract void closeAfterFlush();
+
+    abstract void close();
+
+    /** Closes from any thread, e.g. when a resumed connection takes over this nickname. */
+    abstract void evict();
+
+    abstract String remoteAddress();
+}
@@ -0,0 +1,127 @@
+package Server;
+
+import Protocol.Tls;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One selector thread owning a slice of the connections. New sockets, broadcasts and tasks
+ * arrive through an inbox; after draining it, each peer with pending output gets one gathering write
+ * covering everything queued since the last pass.
+ */
+final class ServerLoop implements Hub.Subscribers, Runnable {
+    private final Hub hub;
+    private final Tls tls;
+    private final Selector selector;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Object> inbox = new ConcurrentLinkedQueue<>();
+    private final ArrayList<NioPeer> peers = new ArrayList<>();
+    private final ArrayList<NioPeer> dirty = new ArrayList<>();
+
+    ServerLoop(Hub hub, String name, Tls tls) {
+        this.hub = hub;
+        this.tls = tls;
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void adopt(SocketChannel channel) {
+        inbox.add(channel);
+        selector.wakeup();
+    }
+
+    @Override
+    public void publish(Outbound m) {
+        inbox.add(m);
+        selector.wakeup();
+    }
+
+    void execute(Runnable task) {
+        inbox.add(task);
+        selector.wakeup();
+    }
+
+    void markDirty(NioPeer p) {
+        dirty.add(p);
+    }
+
+    void remove(NioPeer p) {
+        int i = p.index;
+        if (i < 0 || i >= peers.size() || peers.get(i) != p) return;
+        NioPeer last = peers.remove(peers.size() - 1);
+        if (last != p) {
+            peers.set(i, last);
+            last.index = i;
+        }
+        p.index = -1;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                selector.select(this::dispatch);
+                Object item;
+                while ((item = inbox.poll()) != null) {
+                    if (item instanceof Outbound m) fanOut(m);
+                    else if (item instanceof Runnable task) task.run();
+                    else register((SocketChannel) item);
+                }
+                // Peers may be appended while flushing (a close broadcasts a SYSTEM line).
+                for (int i = 0; i < dirty.size(); i++) dirty.get(i).flush();
+                dirty.clear();
+            } catch (IOException | RuntimeException e) {
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+
+    private void dispatch(SelectionKey key) {
+        NioPeer p = (NioPeer) key.attachment();
+        if (key.isValid() && key.isReadable()) p.onReadable();
+        if (key.isValid() && key.isWritable()) p.flush();
+    }
+
+    private void fanOut(Outbound m) {
+        int n = 0;
+        // Backwards, because a peer that overflows removes itself by swapping with the last one.
+        for (int i = peers.size() - 1; i >= 0; i--) {
+            if (i >= peers.size()) continue;
+            NioPeer p = peers.get(i);
+            if (!p.isJoined() || !p.receives(m)) continue;
+            p.send(m);
+            n++;
+        }
+        hub.messagesOut.add(n);
+    }
+
+    private void register(SocketChannel channel) {
+        NioPeer p = new NioPeer(this, channel, tls == null ? null : tls.open(channel), hub);
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            p.key = channel.register(selector, SelectionKey.OP_READ, p);
+        } catch (IOException e) {
+            p.close();
+            return;
+        }
+        p.index = peers.size();
+        peers.add(p);
+    }
+}
@@ -0,0 +1,171 @@
+package Server;
+
+import Protocol.BlockDeflater;
+import Protocol.Frame;
+import Protocol.FrameReader;
+import Protocol.TlsChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A connection served by a blocking reader thread and a blocking writer thread. With TLS the
+ * reader runs the handshake first; nothing is queued for the writer before the client joins.
+ */
+final class ThreadedPeer extends Peer {
+    private static final int READ_BUFFER = 16 * 1024;
+    private static final int MAX_QUEUED = 4096;
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+    private static final ByteBuffer COMPRESS = ByteBuffer.allocate(0);
+
+    private final SocketChannel channel;
+    private final TlsChannel tls;
+    private final Hub hub;
+    private final ThreadedServer server;
+    private final LinkedBlockingQueue<ByteBuffer> out = new LinkedBlockingQueue<>(MAX_QUEUED);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Handed from the reader to the writer by the COMPRESS marker's trip through the queue.
+    private BlockDeflater pendingDeflater;
+
+    ThreadedPeer(SocketChannel channel, TlsChannel tls, Hub hub, ThreadedServer server) {
+        super(ByteBuffer.allocate(READ_BUFFER));
+        this.channel = channel;
+        this.tls = tls;
+        this.hub = hub;
+        this.server = server;
+    }
+
+    void start(ThreadFactory threads) {
+        threads.newThread(this::readLoop).start();
+        threads.newThread(this::writeLoop).start();
+    }
+
+    @Override
+    void send(ByteBuffer shared) {
+        // Never block the broadcaster: a subscriber this far behind is dropped.
+        if (!closed.get() && !out.offer(shared)) close();
+    }
+
+    @Override
+    void compressFromHere(BlockDeflater d) {
+        pendingDeflater = d;
+        if (!out.offer(COMPRESS)) close();
+    }
+
+    @Override
+    void closeAfterFlush() {
+        if (!out.offer(CLOSE)) close();
+    }
+
+    private void readLoop() {
+        FrameReader in = inbound();
+        try {
+            if (tls != null) tls.handshake();
+            while (!closed.get()) {
+                if ((tls == null ? channel.read(in.readTarget()) : tls.read(in.readTarget())) < 0) break;
+                in.begin();
+                Frame f;
+                while (!closed.get() && (f = in.next()) != null) hub.onFrame(this, f);
+                hub.afterRead(this);
+                if (!in.end()) break;
+            }
+        } catch (IOException ignored) {
+        }
+        close();
+        in.endInflating();
+    }
+
+    private void writeLoop() {
+        ArrayList<ByteBuffer> batch = new ArrayList<>();
+        BlockDeflater deflater = null;
+        ByteBuffer block = null;
+        try {
+            while (!closed.get()) {
+                batch.add(out.take());
+                out.drainTo(batch, 63);
+                boolean closeAfter = false;
+                int from = 0;
+                // Markers split the batch: what precedes COMPRESS still goes out uncompressed.
+                for (int i = 0; i <= batch.size(); i++) {
+                    ByteBuffer b = i < batch.size() ? batch.get(i) : null;
+                    if (b != null && b != CLOSE && b != COMPRESS) continue;
+                    ByteBuffer[] bufs = batch.subList(from, i).toArray(new ByteBuffer[0]);
+                    if (deflater == null) writeFully(bufs);
+                    else writeBlocks(bufs, deflater, block);
+                    from = i + 1;
+                    if (b == CLOSE) {
+                        closeAfter = true;
+                    } else if (b == COMPRESS) {
+                        deflater = pendingDeflater;
+                        block = ByteBuffer.allocate(BlockDeflater.maxBlockSize(BlockDeflater.MAX_PLAIN));
+                    }
+                }
+                batch.clear();
+                if (closeAfter) break;
+            }
+        } catch (IOException ignored) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        close();
+        if (deflater != null) deflater.end();
+    }
+
+    private void writeFully(ByteBuffer[] bufs) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer b : bufs) remaining += b.remaining();
+        while (remaining > 0) remaining -= tls == null ? channel.write(bufs) : tls.write(bufs);
+    }
+
+    private void writeBlocks(ByteBuffer[] bufs, BlockDeflater deflater, ByteBuffer block) throws IOException {
+        int from = 0;
+        while (from < bufs.length) {
+            int to = from;
+            int plain = 0;
+            while (to < bufs.length && (to == from || plain + bufs[to].remaining() <= BlockDeflater.MAX_PLAIN)) {
+                plain += bufs[to++].remaining();
+            }
+            block.clear();
+            deflater.write(bufs, from, to - from, block);
+            block.flip();
+            while (block.hasRemaining()) {
+                if (tls == null) channel.write(block);
+                else tls.write(block);
+            }
+            from = to;
+        }
+    }
+
+    @Override
+    void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        try {
+            if (tls != null) tls.close();
+            else channel.close();
+        } catch (IOException ignored) {
+        }
+        out.clear();
+        out.offer(CLOSE);
+        server.remove(this);
+        hub.onClosed(this);
+    }
+
+    @Override
+    void evict() {
+        close();
+    }
+
+    @Override
+    String remoteAddress() {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+}
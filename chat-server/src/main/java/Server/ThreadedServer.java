@@ -0,0 +1,71 @@
+package Server;
+
+import Protocol.Tls;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/** Thread-per-connection mode; with a virtual-thread factory this scales like the selector mode. */
+final class ThreadedServer implements Hub.Subscribers {
+    private final Hub hub;
+    private final ThreadFactory threads;
+    private final Tls tls;
+    private final ServerSocketChannel server;
+    private final Set<ThreadedPeer> peers = ConcurrentHashMap.newKeySet();
+
+    ThreadedServer(Hub hub, int port, ThreadFactory threads, Tls tls) throws IOException {
+        this.hub = hub;
+        this.threads = threads;
+        this.tls = tls;
+        server = ServerSocketChannel.open();
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(new InetSocketAddress(port), 4096);
+        hub.addGroup(this);
+    }
+
+    void start() {
+        Thread acceptor = new Thread(this::acceptLoop, "ServerAccept");
+        acceptor.start();
+    }
+
+    @Override
+    public void publish(Outbound m) {
+        int n = 0;
+        for (ThreadedPeer p : peers) {
+            if (!p.isJoined() || !p.receives(m)) continue;
+            p.send(m);
+            n++;
+        }
+        hub.messagesOut.add(n);
+    }
+
+    void remove(ThreadedPeer p) {
+        peers.remove(p);
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel ch = server.accept();
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                ThreadedPeer p = new ThreadedPeer(ch, tls == null ? null : tls.open(ch), hub, this);
+                peers.add(p);
+                p.start(threads);
+            } catch (IOException e) {
+                if (!server.isOpen()) return;
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/** Reference server. */
+module chat.server {
+    requires chat.protocol;
+}
@@ -0,0 +1,234 @@
+package Server;
+
+import Protocol.BlockDeflater;
+import Protocol.Capabilities;
+import Protocol.ChatMessage;
+import Protocol.Frame;
+import Protocol.FrameDecoder;
+import Protocol.Framing;
+import Protocol.MessageType;
+import Protocol.ProtocolException;
+import Protocol.TextEncoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HubTest {
+    private Hub hub;
+    private final List<FakePeer> peers = new ArrayList<>();
+
+    /** Keeps what the hub sends, decoded with the framing in force when it was sent. */
+    private final class FakePeer extends Peer {
+        final List<ChatMessage> received = new ArrayList<>();
+        boolean closed;
+
+        FakePeer() {
+            super(ByteBuffer.allocate(4096));
+            peers.add(this);
+        }
+
+        @Override
+        void send(ByteBuffer shared) {
+            try {
+                Frame f = framing().newDecoder(isSequenced(), hasChannels()).decode(shared);
+                received.add(f.toMessage());
+            } catch (ProtocolException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        void compressFromHere(BlockDeflater d) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        void closeAfterFlush() {
+            closed = true;
+        }
+
+        @Override
+        void close() {
+            closed = true;
+        }
+
+        @Override
+        void evict() {
+            closed = true;
+        }
+
+        @Override
+        String remoteAddress() {
+            return "test";
+        }
+
+        Capabilities caps() {
+            for (ChatMessage m : received) {
+                if (m.type() == MessageType.CAPS) return Capabilities.parse(m.body());
+            }
+            throw new AssertionError("no CAPS in " + received);
+        }
+
+        List<ChatMessage> chats() {
+            return received.stream().filter(m -> m.type() == MessageType.CHAT).toList();
+        }
+
+        List<String> notices() {
+            return received.stream().filter(m -> m.type() == MessageType.SYSTEM).map(ChatMessage::body).toList();
+        }
+
+        long lastSeq() {
+            return received.getLast().seq();
+        }
+
+        void chat(String body, long seq) {
+            hub.onFrame(this, frame(new ChatMessage(MessageType.CHAT, nick(), 1, body, seq, ChatMessage.LOBBY), true));
+            hub.afterRead(this);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        hub = new Hub();
+        hub.addGroup(m -> {
+            for (FakePeer p : peers) {
+                if (p.isJoined() && !p.closed && p.receives(m)) p.send(m);
+            }
+        });
+    }
+
+    @Test
+    void resumeInTheSameEpochReplaysOnlyTheGap() {
+        FakePeer alice = join("alice", sequenced());
+        FakePeer bob = join("bob", Capabilities.none());
+        chats(bob, "one", "two");
+        long seen = alice.lastSeq();
+        Capabilities caps = alice.caps();
+        drop(alice);
+        chats(bob, "three", "four");
+
+        FakePeer resumed = join("alice", resume(caps, caps.get(Capabilities.EPOCH), seen));
+        assertEquals(caps.get(Capabilities.TOKEN), resumed.caps().get(Capabilities.TOKEN));
+        assertEquals(List.of("three", "four"), bodies(resumed.chats()));
+        assertTrue(resumed.notices().contains("alice left the chat."));
+        assertFalse(resumed.notices().contains("bob joined the chat."));
+    }
+
+    @Test
+    void resumeAfterAnEpochChangeReplaysEverythingRetained() {
+        FakePeer bob = join("bob", Capabilities.none());
+        chats(bob, "one", "two");
+        Capabilities stale = Capabilities.none().with(Capabilities.TOKEN, "feed");
+
+        FakePeer alice = join("alice", resume(stale, "another-server", 1));
+        assertEquals(List.of("one", "two"), bodies(alice.chats()));
+        // Not the stale token: the session was not known here.
+        assertFalse("feed".equals(alice.caps().get(Capabilities.TOKEN)));
+    }
+
+    @Test
+    void replayReportsWhatFellOutOfHistory() {
+        FakePeer alice = join("alice", sequenced());
+        Capabilities caps = alice.caps();
+        long seen = alice.lastSeq();
+        drop(alice);
+        FakePeer bob = join("bob", Capabilities.none());
+        for (int i = 0; i < Hub.HISTORY + 10; i++) bob.chat("m" + i, 0);
+
+        FakePeer resumed = join("alice", resume(caps, caps.get(Capabilities.EPOCH), seen));
+        List<ChatMessage> chats = resumed.chats();
+        assertEquals("m" + (Hub.HISTORY + 9), chats.getLast().body());
+        // The leave and bob's join and first lines were overwritten.
+        long missing = Hub.HISTORY + 12 - chats.size();
+        assertTrue(resumed.notices().contains(missing + " earlier messages are no longer available."));
+        for (int i = 1; i < chats.size(); i++) assertEquals(chats.get(i - 1).seq() + 1, chats.get(i).seq());
+    }
+
+    @Test
+    void resumeTakesOverALiveConnectionOnlyWithItsToken() {
+        FakePeer alice = join("alice", sequenced());
+        Capabilities caps = alice.caps();
+
+        Capabilities guessed = Capabilities.none().with(Capabilities.TOKEN, "0");
+        FakePeer impostor = join("alice", resume(guessed, caps.get(Capabilities.EPOCH), 0));
+        assertTrue(impostor.closed);
+        assertEquals(MessageType.ERROR, impostor.received.getLast().type());
+        assertFalse(alice.closed);
+
+        FakePeer resumed = join("alice", resume(caps, caps.get(Capabilities.EPOCH), alice.lastSeq()));
+        assertTrue(alice.closed);
+        assertFalse(resumed.closed);
+        assertTrue(resumed.notices().getFirst().startsWith("Welcome back, alice."));
+        assertEquals(1, hub.online());
+    }
+
+    @Test
+    void retransmittedLinesAreAcknowledgedButRelayedOnce() {
+        FakePeer alice = join("alice", sequenced().with(Capabilities.ACK, "1"));
+        FakePeer bob = join("bob", Capabilities.none());
+        alice.chat("one", 1);
+        alice.chat("two", 2);
+        alice.chat("two", 2);
+        assertEquals(List.of("one", "two"), bodies(bob.chats()));
+        assertEquals(2, alice.received.getLast().seq());
+        assertEquals(MessageType.ACK, alice.received.getLast().type());
+
+        // The numbering carries over to the connection that resumes it.
+        Capabilities caps = alice.caps();
+        long seen = alice.chats().getLast().seq();
+        drop(alice);
+        FakePeer resumed = join("alice", resume(caps, caps.get(Capabilities.EPOCH), seen).with(Capabilities.ACK, "1"));
+        resumed.chat("two", 2);
+        resumed.chat("three", 3);
+        assertEquals(List.of("one", "two", "three"), bodies(bob.chats()));
+    }
+
+    private FakePeer join(String nick, Capabilities offered) {
+        FakePeer p = new FakePeer();
+        hub.onFrame(p, frame(new ChatMessage(MessageType.JOIN, nick, 1, offered.toString()), false));
+        return p;
+    }
+
+    private void drop(FakePeer p) {
+        p.closed = true;
+        hub.onClosed(p);
+    }
+
+    private static void chats(FakePeer from, String... bodies) {
+        for (String body : bodies) from.chat(body, 0);
+    }
+
+    private static Capabilities sequenced() {
+        return Capabilities.none().with(Capabilities.SEQ, "1");
+    }
+
+    private static Capabilities resume(Capabilities previous, String epoch, long seen) {
+        return sequenced().with(Capabilities.TOKEN, previous.get(Capabilities.TOKEN))
+                .with(Capabilities.EPOCH, epoch)
+                .with(Capabilities.RESUME, Long.toString(seen));
+    }
+
+    private static List<String> bodies(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::body).toList();
+    }
+
+    // The hub reads frames in the framing each peer negotiated; these tests stay on text.
+    private static Frame frame(ChatMessage m, boolean sequenced) {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        new TextEncoder(sequenced, false).encode(m, buf);
+        FrameDecoder decoder = Framing.TEXT.newDecoder(sequenced, false);
+        try {
+            return decoder.decode(buf.flip());
+        } catch (ProtocolException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package ClientUI;
+
+import Client.ChatClient;
+import Client.Journals;
+import Client.Metrics;
+import Client.OverflowPolicy;
+import Client.RttStats;
+import Client.SessionOptions;
+import Client.Transport;
+import Protocol.ChatMessage;
+import Protocol.Compression;
+import Protocol.Framing;
+import Protocol.MessageType;
+import Protocol.Tls;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Client extends JFrame {
+    private static final int TRANSCRIPT_CAPACITY = Integer.getInteger("chat.transcript.capacity", 5000);
+    private static final int ROOM_CAPACITY = Integer.getInteger("chat.room.capacity", 1000);
+    private static final int RENDER_HZ = Integer.getInteger("chat.render.hz", 60);
+    private static final SessionOptions SESSION_OPTIONS = SessionOptions.DEFAULTS
+            .withFraming(Framing.fromWireName(System.getProperty("chat.framing", "text")))
+            .withCompression(Compression.fromWireName(System.getProperty("chat.compress", "none")))
+            .withSendCapacity(Integer.getInteger("chat.send.capacity", SessionOptions.DEFAULTS.sendCapacity()))
+            .withOverflow(OverflowPolicy.fromName(System.getProperty("chat.send.overflow", "reject")))
+            .withPingIntervalMillis(Long.getLong("chat.ping.interval", 1000));
+    private static final String TLS_TRUSTSTORE = System.getProperty("chat.tls.truststore");
+    private static final boolean TLS = TLS_TRUSTSTORE != null || Boolean.getBoolean("chat.tls");
+    private static final int STATUS_REFRESH_MS = 250;
+    private static final String JOURNAL_DIR = System.getProperty("chat.journal.dir",
+            Path.of(System.getProperty("user.home"), ".chat", "journal").toString());
+    private static final int JOURNAL_SEGMENT_BYTES = Integer.getInteger("chat.journal.segment.mb", 8) << 20;
+    // 0 serves no /metrics endpoint.
+    private static final int METRICS_PORT = Integer.getInteger("chat.metrics.port", 0);
+    private static final long EDT_PROBE_MS = Long.getLong("chat.edt.probe.ms", 100);
+    private static final long EDT_STALL_MS = Long.getLong("chat.edt.stall.ms", 500);
+    private static final LongAdder SHOWN = Metrics.shared().counter("chat_ui_messages_total",
+            "Messages handed to the transcript.");
+
+    private final RoomTabs rooms = new RoomTabs(TRANSCRIPT_CAPACITY, ROOM_CAPACITY, 18, 60);
+    private final RenderScheduler renderer = new RenderScheduler(RENDER_HZ, TRANSCRIPT_CAPACITY, ROOM_CAPACITY, rooms::appendAll);
+    private final SearchPanel search = new SearchPanel(rooms, 18, 30);
+    private final JTextField inputField = new JTextField(45);
+    private final JButton sendBtn = new JButton("Send");
+    private final JButton connectBtn = new JButton("Connect");
+    private final JButton disconnectBtn = new JButton("Disconnect");
+    private final JButton diagnosticsBtn = new JButton("Diagnostics");
+    private final EdtWatchdog watchdog = new EdtWatchdog(Metrics.shared(), EDT_PROBE_MS, EDT_STALL_MS,
+            "chat_client_frames_in_total", "chat_ui_messages_total", "chat_ui_render_batch_messages");
+    private final DiagnosticsDialog diagnostics = new DiagnosticsDialog(this, Metrics.shared(), watchdog);
+    private final JLabel statusLabel = new JLabel("Disconnected");
+    private final JLabel rttLabel = new JLabel();
+    private final Timer statusTimer = new Timer(STATUS_REFRESH_MS, _ -> refreshStatus());
+    private String status = "Disconnected";
+
+    private volatile ChatClient connection;
+    private volatile boolean connected;
+    private String nickname;
+    // Kept across connects so reconnects resume the TLS session.
+    private Tls tls;
+    // Saved history of the server last connected to; the connection appends to it.
+    private Journals journals;
+    private Closeable metricsServer;
+
+    public Client() {
+        super("Java Swing Chat Client");
+        setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        buildUi();
+        bindActions();
+        registerMetrics();
+        pack();
+        setLocationByPlatform(true);
+        statusTimer.start();
+    }
+
+    private void buildUi() {
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(connectBtn);
+        top.add(disconnectBtn);
+        top.add(diagnosticsBtn);
+        disconnectBtn.setEnabled(false);
+
+        JPanel center = new JPanel(new BorderLayout());
+        center.add(rooms, BorderLayout.CENTER);
+        center.add(search, BorderLayout.EAST);
+
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        bottom.add(inputField);
+        bottom.add(sendBtn);
+        inputField.setEnabled(false);
+        sendBtn.setEnabled(false);
+
+        JPanel status = new JPanel(new BorderLayout());
+        status.add(statusLabel, BorderLayout.WEST);
+        status.add(rttLabel, BorderLayout.EAST);
+        status.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+
+        JPanel southWrapper = new JPanel(new BorderLayout());
+        southWrapper.add(bottom, BorderLayout.CENTER);
+        southWrapper.add(status, BorderLayout.SOUTH);
+
+        setLayout(new BorderLayout(8, 8));
+        add(top, BorderLayout.NORTH);
+        add(center, BorderLayout.CENTER);
+        add(southWrapper, BorderLayout.SOUTH);
+
+        pack();
+        setLocationByPlatform(true);
+    }
+
+    private void bindActions() {
+        connectBtn.addActionListener(_ -> onConnect());
+        disconnectBtn.addActionListener(_ -> onDisconnect());
+        diagnosticsBtn.addActionListener(_ -> diagnostics.setVisible(true));
+        sendBtn.addActionListener(_ -> sendCurrentText());
+        inputField.addActionListener(_ -> sendCurrentText());
+        getRootPane().registerKeyboardAction(_ -> search.focusQuery(),
+                KeyStroke.getKeyStroke(KeyEvent.VK_F, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()),
+                JComponent.WHEN_IN_FOCUSED_WINDOW);
+
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                onDisconnect();
+                statusTimer.stop();
+                diagnostics.dispose();
+                watchdog.close();
+                closeMetricsServer();
+                Journals j = journals;
+                journals = null;
+                if (j != null) j.close();
+            }
+        });
+    }
+
+    private void registerMetrics() {
+        Metrics metrics = Metrics.shared();
+        metrics.gauge("chat_client_send_queue_depth", "Lines waiting to be written, including while reconnecting.", () -> {
+            ChatClient c = connection;
+            return c == null ? 0 : c.pending();
+        });
+        metrics.gauge("chat_ui_render_dropped_frames", "Render frames that ran late.", renderer::droppedFrames);
+        metrics.gauge("chat_ui_render_dropped_messages", "Messages trimmed from the render backlog.",
+                renderer::droppedMessages);
+        if (METRICS_PORT > 0) {
+            try {
+                metricsServer = metrics.serve(METRICS_PORT);
+            } catch (IOException e) {
+                setStatus("Disconnected · metrics endpoint not started: " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeMetricsServer() {
+        if (metricsServer == null) return;
+        try {
+            metricsServer.close();
+        } catch (IOException ignored) {
+        }
+        metricsServer = null;
+    }
+
+    private void onConnect() {
+        var params = promptForConnection();
+        if (params == null) return;
+
+        String host = params.host();
+        int port = params.port();
+        String nick = params.nick();
+
+        SessionOptions options = SESSION_OPTIONS;
+        if (TLS) {
+            try {
+                if (tls == null) {
+                    tls = Tls.client(TLS_TRUSTSTORE == null ? null : Path.of(TLS_TRUSTSTORE),
+                            System.getProperty("chat.tls.password", "changeit").toCharArray());
+                }
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage(), "TLS Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            options = options.withTls(tls);
+        }
+
+        openJournals(host, port);
+        connectBtn.setEnabled(false);
+        setStatus("Connecting to " + host + ":" + port + "…");
+        Link link = new Link();
+        ChatClient c = new ChatClient(Transport.shared(), host, port, nick, options, journals, link);
+        link.client = c;
+        // Current from here on, so lines that arrive before the handshake completes are shown.
+        connection = c;
+        // Rooms still open from an earlier connection are joined in the handshake.
+        for (String room : rooms.roomChannels()) c.joinRoom(room);
+        c.start().whenComplete((_, err) ->
+                SwingUtilities.invokeLater(() -> onConnectCompleted(c, err, host, port)));
+    }
+
+    private void onConnectCompleted(ChatClient c, Throwable err, String host, int port) {
+        // Disconnected or closed while connecting.
+        if (connection != c) return;
+        if (err != null) {
+            connection = null;
+            Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+            connectBtn.setEnabled(true);
+            setStatus("Disconnected");
+            JOptionPane.showMessageDialog(this,
+                    "Could not connect: " + cause.getMessage(),
+                    "Connection Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        nickname = c.nickname();
+        connected = true;
+
+        connectBtn.setEnabled(false);
+        disconnectBtn.setEnabled(true);
+        inputField.setEnabled(true);
+        sendBtn.setEnabled(true);
+        setStatus("Connected");
+        appendSystem("Connected as " + nickname + " to " + host + ":" + port + (TLS ? " over TLS" : "")
+                + (c.hasRooms() ? ". Type /join #room to open a room." : ""));
+        inputField.requestFocusInWindow();
+    }
+
+    /**
+     * Callbacks from one {@link ChatClient}. A client being left or closed can still call back
+     * after the next one has connected, so each callback is dropped once its client is no longer
+     * the {@link #connection}.
+     */
+    private final class Link implements ChatClient.Listener {
+        // Set before the client starts, so before its first callback.
+        volatile ChatClient client;
+
+        @Override
+        public void onMessage(ChatMessage m) {
+            if (client == connection) appendMessage(m);
+        }
+
+        @Override
+        public void onReconnecting(IOException cause, int attempt, long delayMillis) {
+            SwingUtilities.invokeLater(() -> {
+                if (client == connection) Client.this.onReconnecting(cause, attempt);
+            });
+        }
+
+        @Override
+        public void onReconnected() {
+            SwingUtilities.invokeLater(() -> {
+                if (client == connection) Client.this.onReconnected();
+            });
+        }
+
+        @Override
+        public void onClosed(IOException cause) {
+            SwingUtilities.invokeLater(() -> {
+                if (client == connection) Client.this.onClosed(cause);
+            });
+        }
+    }
+
+    /** One directory per server under {@code chat.journal.dir}; {@code none} keeps no history. */
+    private void openJournals(String host, int port) {
+        if ("none".equals(JOURNAL_DIR)) return;
+        Path root = Path.of(JOURNAL_DIR, host.replaceAll("[^A-Za-z0-9._-]", "_") + "_" + port);
+        if (journals != null && journals.root().equals(root)) return;
+        if (journals != null) journals.close();
+        journals = new Journals(root, JOURNAL_SEGMENT_BYTES);
+        rooms.attach(journals);
+    }
+
+    private void onReconnecting(IOException cause, int attempt) {
+        if (attempt == 1) {
+            String reason = cause != null ? cause.getMessage() : "closed by server";
+            appendMessage(new ChatMessage(MessageType.ERROR, "", System.currentTimeMillis(),
+                    "Connection lost (" + reason + "); reconnecting…"));
+        }
+        setStatus("Reconnecting (attempt " + attempt + ")…");
+    }
+
+    private void onReconnected() {
+        setStatus("Connected");
+        appendSystem("Reconnected.");
+    }
+
+    private void onClosed(IOException cause) {
+        if (cause != null) {
+            appendMessage(new ChatMessage(MessageType.ERROR, "", System.currentTimeMillis(),
+                    "Connection error: " + cause.getMessage()));
+        }
+        connection = null;
+        connected = false;
+        setStatus("Disconnected");
+        connectBtn.setEnabled(true);
+        disconnectBtn.setEnabled(false);
+        inputField.setEnabled(false);
+        sendBtn.setEnabled(false);
+        appendSystem("Connection closed.");
+    }
+
+    private void sendCurrentText() {
+        String text = inputField.getText();
+        if (text == null || text.isBlank()) return;
+        ChatClient c = connection;
+        if (c == null) {
+            JOptionPane.showMessageDialog(this,
+                    "Failed to send: Not connected.",
+                    "Send Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (runCommand(c, text.strip())) {
+            inputField.setText("");
+            return;
+        }
+        String channel = rooms.selectedChannel();
+        inputField.setText("");
+        // Never blocks the EDT; a refused line stays in the input field for another try.
+        if (!c.send(channel, text)) {
+            UiEvents.SendRejected event = new UiEvents.SendRejected();
+            if (event.shouldCommit()) {
+                event.channel = channel;
+                event.pending = c.pending();
+                event.length = text.length();
+                event.commit();
+            }
+            inputField.setText(text);
+            Toolkit.getDefaultToolkit().beep();
+            appendMessage(new ChatMessage(MessageType.ERROR, "", System.currentTimeMillis(),
+                    "Send queue full (" + c.pending() + " waiting); message not sent.", 0, channel));
+        }
+        refreshStatus();
+    }
+
+    /** Handles {@code /join #room} and {@code /part [#room]}; false if {@code text} is not one of them. */
+    private boolean runCommand(ChatClient c, String text) {
+        String[] words = text.split("\\s+");
+        String here = rooms.selectedChannel();
+        switch (words[0]) {
+            case "/join" -> {
+                if (words.length < 2) {
+                    appendSystem(here, "Usage: /join #room");
+                    return true;
+                }
+                String room = roomName(words[1]);
+                if (!c.hasRooms()) {
+                    appendSystem(here, "This server does not support rooms.");
+                } else if (!ChatMessage.isRoomName(room)) {
+                    appendSystem(here, "Room names are '#' and 1-32 letters/digits/underscore/dash.");
+                } else if (c.joinRoom(room)) {
+                    rooms.select(room);
+                } else {
+                    appendSystem(here, "Could not join " + room + " (send queue full).");
+                }
+            }
+            case "/part", "/leave" -> {
+                String room = words.length > 1 ? roomName(words[1]) : here;
+                if (room.isEmpty()) {
+                    appendSystem(here, "The lobby cannot be left; use Disconnect.");
+                    return true;
+                }
+                if (!c.rooms().contains(room)) {
+                    appendSystem(here, "You are not in " + room + ".");
+                    return true;
+                }
+                if (!c.leaveRoom(room)) appendSystem("Left " + room + ", but could not tell the server (send queue full).");
+                rooms.close(room);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String roomName(String word) {
+        return word.startsWith("#") ? word : "#" + word;
+    }
+
+    private void onDisconnect() {
+        if (!connected) {
+            closeQuietly();
+            return;
+        }
+        ChatClient c = connection;
+        connection = null;
+        connected = false;
+        if (c != null) c.leave();
+
+        connectBtn.setEnabled(true);
+        disconnectBtn.setEnabled(false);
+        inputField.setEnabled(false);
+        sendBtn.setEnabled(false);
+        setStatus("Disconnected");
+        appendSystem("Disconnected.");
+    }
+
+    private void setStatus(String text) {
+        status = text;
+        refreshStatus();
+    }
+
+    private void refreshStatus() {
+        ChatClient c = connection;
+        String text = status;
+        if (c != null) {
+            int pending = c.pending();
+            long dropped = c.dropped();
+            if (pending > 0) text += " · " + pending + " queued";
+            if (dropped > 0) text += " · " + dropped + " dropped";
+        }
+        if (!text.equals(statusLabel.getText())) statusLabel.setText(text);
+        String rtt = "";
+        if (c != null && c.isConnected()) {
+            RttStats.Snapshot r = c.rtt();
+            if (r.samples() > 0) {
+                rtt = String.format(Locale.ROOT, "RTT %.1f ms (min %.1f, p99 %.1f)",
+                        r.avgNanos() / 1e6, r.minNanos() / 1e6, r.p99Nanos() / 1e6);
+            }
+        }
+        if (!rtt.equals(rttLabel.getText())) rttLabel.setText(rtt);
+    }
+
+    private void appendMessage(ChatMessage m) {
+        switch (m.type()) {
+            case SYSTEM, CHAT, ERROR -> {
+                SHOWN.increment();
+                renderer.submit(m);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void appendSystem(String msg) {
+        renderer.submit(ChatMessage.notice(msg));
+    }
+
+    private void appendSystem(String channel, String msg) {
+        renderer.submit(ChatMessage.notice(msg).withChannel(channel));
+    }
+
+    private void closeQuietly() {
+        ChatClient c = connection;
+        connection = null;
+        if (c != null) c.close();
+        connected = false;
+    }
+
+    private record ConnectParams(String host, int port, String nick) {}
+
+    private ConnectParams promptForConnection() {
+        JTextField hostField = new JTextField("127.0.0.1", 16);
+        JTextField portField = new JTextField("8080", 6); // Default port manually set
+        JTextField nickField = new JTextField("User" + (int) (Math.random() * 1000), 10);
+
+        JPanel panel = new JPanel(new GridLayout(0, 2, 8, 8));
+        panel.add(new JLabel("Host:"));
+        panel.add(hostField);
+        panel.add(new JLabel("Port:"));
+        panel.add(portField);
+        panel.add(new JLabel("Nickname:"));
+        panel.add(nickField);
+
+        int result = JOptionPane.showConfirmDialog(
+                this, panel, "Connect to Chat",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+
+        if (result != JOptionPane.OK_OPTION) return null;
+
+        String host = hostField.getText().trim();
+        if (host.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Host cannot be empty.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+
+        int port;
+        try {
+            port = Integer.parseInt(portField.getText().trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Port must be a number.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+
+        if (port <= 0 || port > 65535) {
+            JOptionPane.showMessageDialog(this, "Port out of range.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+
+        String nick = nickField.getText().trim();
+        if (!nick.matches("[A-Za-z0-9_]{3,24}") || "SYSTEM".equalsIgnoreCase(nick)) {
+            JOptionPane.showMessageDialog(this,
+                    "Nickname must be 3–24 letters/digits/underscore and not 'SYSTEM'.",
+                    "Input Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+
+        return new ConnectParams(host, port, nick);
+    }
+
+    public static void main(String[] args) {
+        Metrics.shared().exportJmx("Chat:type=ClientMetrics");
+        SwingUtilities.invokeLater(() -> {
+            Client frame = new Client();
+            frame.setVisible(true);
+        });
+    }
+}
\ No newline at end of file
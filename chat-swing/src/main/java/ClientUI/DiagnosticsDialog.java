@@ -0,0 +1,65 @@
+package ClientUI;
+
+import Client.Metrics;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.util.List;
+
+/**
+ * Live view of {@link Metrics} and the {@link EdtWatchdog}'s stall log, refreshed while showing,
+ * with a copy of the metrics in Prometheus format a click away.
+ */
+final class DiagnosticsDialog extends JDialog {
+    private static final int REFRESH_MS = 500;
+
+    private final Metrics metrics;
+    private final EdtWatchdog watchdog;
+    private final JTextArea text = new JTextArea(24, 90);
+    private final Timer refresh = new Timer(REFRESH_MS, _ -> refresh());
+
+    DiagnosticsDialog(Frame owner, Metrics metrics, EdtWatchdog watchdog) {
+        super(owner, "Diagnostics", false);
+        this.metrics = metrics;
+        this.watchdog = watchdog;
+        text.setEditable(false);
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, text.getFont().getSize()));
+
+        JButton copy = new JButton("Copy as Prometheus");
+        copy.addActionListener(_ -> Toolkit.getDefaultToolkit().getSystemClipboard()
+                .setContents(new StringSelection(metrics.prometheus()), null));
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(copy);
+
+        setLayout(new BorderLayout());
+        add(new JScrollPane(text), BorderLayout.CENTER);
+        add(buttons, BorderLayout.SOUTH);
+        pack();
+        setLocationByPlatform(true);
+        setDefaultCloseOperation(HIDE_ON_CLOSE);
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        if (visible) {
+            refresh();
+            refresh.start();
+        } else {
+            refresh.stop();
+        }
+        super.setVisible(visible);
+    }
+
+    private void refresh() {
+        int caret = text.getCaretPosition();
+        StringBuilder sb = new StringBuilder(metrics.text());
+        List<String> stalls = watchdog.stalls();
+        sb.append("\nEDT stalls (last ").append(EdtWatchdog.MAX_STALLS).append("): ");
+        if (stalls.isEmpty()) sb.append("none\n");
+        else sb.append(stalls.size()).append('\n');
+        for (int i = stalls.size() - 1; i >= 0; i--) sb.append('\n').append(stalls.get(i));
+        text.setText(sb.toString());
+        text.setCaretPosition(Math.min(caret, text.getDocument().getLength()));
+    }
+}
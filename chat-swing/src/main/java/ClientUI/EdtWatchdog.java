@@ -0,0 +1,173 @@
+package ClientUI;
+
+import Client.Histogram;
+import Client.Metrics;
+
+import java.awt.EventQueue;
+import java.lang.System.Logger.Level;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures how long the EDT takes to run a task posted to it, and keeps evidence of the times it
+ * did not. A daemon thread posts a probe every interval and the wait until it runs feeds the
+ * {@code chat_ui_edt_lag_seconds} timer. A probe still waiting after the stall threshold is a
+ * stall: the EDT's stack is captured then, and again each threshold for as long as it lasts, and
+ * once the probe runs the stall goes into a log of the last {@link #MAX_STALLS}, with the rates of
+ * the given counters over the second before it began. The first capture is also logged at
+ * {@code WARNING} through {@link System.Logger}, so a freeze that never ends still leaves a trace.
+ */
+public final class EdtWatchdog implements AutoCloseable {
+    static final int MAX_STALLS = 32;
+    private static final int MAX_SAMPLES = 5;
+    private static final int MAX_FRAMES = 40;
+    private static final System.Logger LOG = System.getLogger(EdtWatchdog.class.getName());
+    private static final Histogram LAG = Metrics.shared().timer("chat_ui_edt_lag_seconds",
+            "From posting a probe to the EDT until it ran.");
+    private static final LongAdder STALLS = Metrics.shared().counter(
+            "chat_ui_edt_stalls_total", "Probes the EDT took longer than the stall threshold to run.");
+
+    private final Metrics metrics;
+    private final String[] rateCounters;
+    private final long intervalNanos;
+    private final long stallNanos;
+    private final Thread thread;
+    private final ArrayDeque<String> log = new ArrayDeque<>();
+    // One row of counter values per probe, covering the last second or so.
+    private final ArrayDeque<long[]> history = new ArrayDeque<>();
+    private volatile boolean closed;
+    private volatile long postedNanos;
+    private volatile long ranNanos;
+    private volatile Thread edt;
+
+    /** Starts probing every {@code intervalMillis}; {@code rateCounters} name {@link Metrics} counters. */
+    public EdtWatchdog(Metrics metrics, long intervalMillis, long stallMillis, String... rateCounters) {
+        this.metrics = metrics;
+        this.rateCounters = rateCounters.clone();
+        this.intervalNanos = intervalMillis * 1_000_000;
+        this.stallNanos = stallMillis * 1_000_000;
+        this.thread = Thread.ofPlatform().daemon().name("EdtWatchdog").start(this::run);
+    }
+
+    /** The logged stalls, oldest first. */
+    public List<String> stalls() {
+        synchronized (log) {
+            return new ArrayList<>(log);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        Runnable probe = () -> {
+            edt = Thread.currentThread();
+            ranNanos = System.nanoTime();
+            LAG.record(ranNanos - postedNanos);
+            LockSupport.unpark(thread);
+        };
+        while (!closed) {
+            long posted = System.nanoTime();
+            sample(posted);
+            UiEvents.EdtStall event = new UiEvents.EdtStall();
+            event.begin();
+            postedNanos = posted;
+            ranNanos = 0;
+            EventQueue.invokeLater(probe);
+            List<StackTraceElement[]> stacks = new ArrayList<>(0);
+            String rates = null;
+            long next = posted + stallNanos;
+            long ran;
+            while ((ran = ranNanos) == 0 && !closed) {
+                long now = System.nanoTime();
+                if (now - next >= 0) {
+                    if (stacks.isEmpty()) {
+                        rates = rates(posted);
+                        StackTraceElement[] first = stack();
+                        long millis = (now - posted) / 1_000_000;
+                        LOG.log(Level.WARNING, () -> "EDT stalled for " + millis + " ms:\n" + format(first, 10).indent(2));
+                    }
+                    if (stacks.size() < MAX_SAMPLES) stacks.add(stack());
+                    next += stallNanos;
+                }
+                LockSupport.parkNanos(this, Math.max(1, next - now));
+            }
+            if (!stacks.isEmpty() && ran != 0) {
+                STALLS.increment();
+                logStall(posted, ran - posted, rates, stacks);
+                if (event.shouldCommit()) {
+                    event.stack = format(stacks.getFirst(), MAX_FRAMES);
+                    event.commit();
+                }
+            }
+            long wait = posted + intervalNanos - System.nanoTime();
+            if (wait > 0 && !closed) LockSupport.parkNanos(this, wait);
+        }
+    }
+
+    private StackTraceElement[] stack() {
+        Thread t = edt;
+        return t == null ? new StackTraceElement[0] : t.getStackTrace();
+    }
+
+    private void sample(long now) {
+        long[] row = new long[rateCounters.length + 1];
+        row[0] = now;
+        for (int i = 0; i < rateCounters.length; i++) row[i + 1] = metrics.value(rateCounters[i]);
+        history.addLast(row);
+        while (history.size() > 2 && now - history.peekFirst()[0] > 2_000_000_000L) history.removeFirst();
+    }
+
+    // Per second, from the oldest row no more than a second before the stall to the row it began at.
+    private String rates(long posted) {
+        long[] end = history.peekLast();
+        long[] start = end;
+        for (long[] row : history) {
+            if (posted - row[0] <= 1_000_000_000L) {
+                start = row;
+                break;
+            }
+        }
+        double seconds = (end[0] - start[0]) / 1e9;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rateCounters.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(rateCounters[i]).append(' ');
+            if (seconds <= 0) sb.append('?');
+            else sb.append(String.format(Locale.ROOT, "%.0f/s", (end[i + 1] - start[i + 1]) / seconds));
+        }
+        return sb.toString();
+    }
+
+    private void logStall(long posted, long nanos, String rates, List<StackTraceElement[]> stacks) {
+        long startedMillis = System.currentTimeMillis() - (System.nanoTime() - posted) / 1_000_000;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%s  EDT stalled %d ms%n", Instant.ofEpochMilli(startedMillis), nanos / 1_000_000));
+        if (rateCounters.length > 0) sb.append("  rates before: ").append(rates).append('\n');
+        for (int i = 0; i < stacks.size(); i++) {
+            sb.append("  sample ").append(i + 1).append(" at +").append((i + 1) * stallNanos / 1_000_000).append(" ms:\n");
+            sb.append(format(stacks.get(i), MAX_FRAMES).indent(4));
+        }
+        synchronized (log) {
+            if (log.size() == MAX_STALLS) log.removeFirst();
+            log.addLast(sb.toString());
+        }
+    }
+
+    private static String format(StackTraceElement[] stack, int maxFrames) {
+        if (stack.length == 0) return "(EDT not seen yet)";
+        StringBuilder sb = new StringBuilder();
+        int n = Math.min(stack.length, maxFrames);
+        for (int i = 0; i < n; i++) sb.append("at ").append(stack[i]).append('\n');
+        if (stack.length > n) sb.append("... ").append(stack.length - n).append(" more\n");
+        return sb.toString();
+    }
+}
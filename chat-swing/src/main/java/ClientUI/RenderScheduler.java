@@ -0,0 +1,126 @@
+package ClientUI;
+
+import Client.Histogram;
+import Client.Metrics;
+import Protocol.ChatMessage;
+
+import javax.swing.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Collects messages from any thread and hands them to the EDT as one batch per frame, at most
+ * {@code hz} times a second. While the EDT is busy each room's backlog is trimmed to that room's
+ * transcript capacity (older rows would be evicted from it anyway), so a flood in one room never
+ * drops another room's lines. Frames whose deadline passed before the commit ran are counted as
+ * dropped.
+ */
+final class RenderScheduler {
+    private static final Histogram LAG = Metrics.shared().timer("chat_ui_render_lag_seconds",
+            "How late each EDT commit ran after its frame was due.");
+    private static final Histogram BATCH = Metrics.shared().histogram("chat_ui_render_batch_messages",
+            "Messages per EDT commit.");
+
+    private final Consumer<List<ChatMessage>> sink;
+    private final long frameNanos;
+    private final int lobbyCapacity;
+    private final int roomCapacity;
+    private final Timer timer;
+    private final Object lock = new Object();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final ArrayList<ChatMessage> batch = new ArrayList<>();
+    // Per room, in the order rooms first appeared since the last commit.
+    private LinkedHashMap<String, ArrayDeque<ChatMessage>> pending = new LinkedHashMap<>();
+    private LinkedHashMap<String, ArrayDeque<ChatMessage>> spare = new LinkedHashMap<>();
+    private int trimmed;
+    private boolean scheduled;
+    private long firstPendingNanos;
+    private long lastCommitNanos;
+
+    RenderScheduler(int hz, int lobbyCapacity, int roomCapacity, Consumer<List<ChatMessage>> sink) {
+        if (hz < 1) throw new IllegalArgumentException("hz must be >= 1");
+        this.sink = sink;
+        this.frameNanos = 1_000_000_000L / hz;
+        this.lobbyCapacity = lobbyCapacity;
+        this.roomCapacity = roomCapacity;
+        this.lastCommitNanos = System.nanoTime() - frameNanos;
+        this.timer = new Timer(0, _ -> commit());
+        this.timer.setRepeats(false);
+    }
+
+    void submit(ChatMessage m) {
+        synchronized (lock) {
+            String channel = m.channel();
+            ArrayDeque<ChatMessage> room = pending.computeIfAbsent(channel, _ -> new ArrayDeque<>());
+            room.addLast(m);
+            if (room.size() > (ChatMessage.LOBBY.equals(channel) ? lobbyCapacity : roomCapacity)) {
+                room.pollFirst();
+                trimmed++;
+                droppedMessages.incrementAndGet();
+            }
+            if (scheduled) return;
+            scheduled = true;
+            firstPendingNanos = System.nanoTime();
+        }
+        SwingUtilities.invokeLater(this::commitOrDefer);
+    }
+
+    long droppedFrames() {
+        return droppedFrames.get();
+    }
+
+    long droppedMessages() {
+        return droppedMessages.get();
+    }
+
+    private void commitOrDefer() {
+        long wait = lastCommitNanos + frameNanos - System.nanoTime();
+        if (wait <= 0) {
+            commit();
+        } else {
+            timer.setInitialDelay((int) Math.max(1, wait / 1_000_000));
+            timer.restart();
+        }
+    }
+
+    private void commit() {
+        UiEvents.RenderCommit event = new UiEvents.RenderCommit();
+        event.begin();
+        LinkedHashMap<String, ArrayDeque<ChatMessage>> rooms;
+        long first;
+        int excess;
+        synchronized (lock) {
+            rooms = pending;
+            pending = spare;
+            first = firstPendingNanos;
+            excess = trimmed;
+            trimmed = 0;
+            scheduled = false;
+        }
+        long now = System.nanoTime();
+        long due = Math.max(first, lastCommitNanos + frameNanos);
+        LAG.record(now - due);
+        long late = now - due - frameNanos;
+        if (late > 0) droppedFrames.addAndGet(late / frameNanos + 1);
+        lastCommitNanos = now;
+
+        // One run per room, so the sink sees each room's burst as a single append.
+        for (ArrayDeque<ChatMessage> room : rooms.values()) batch.addAll(room);
+        rooms.clear();
+        spare = rooms;
+        BATCH.record(batch.size());
+        sink.accept(batch);
+        if (event.shouldCommit()) {
+            event.messages = batch.size();
+            event.trimmed = excess;
+            event.late = Math.max(0, now - due);
+            event.commit();
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,218 @@
+package ClientUI;
+
+import Client.Journal;
+import Client.Journals;
+import Protocol.ChatMessage;
+import Protocol.MessageType;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One tab per room, plus the lobby, which is always first and cannot be closed. Each room keeps
+ * its own {@link TranscriptView}, so a busy room only evicts its own history, and counts the
+ * {@code CHAT} lines that arrived while its tab was not showing. A message for a room without a
+ * tab opens one. EDT only.
+ * <p>
+ * Once {@link #attach attached} to {@link Journals}, each room starts with the last page of its
+ * saved history, once the journal writer has opened it, and loads older pages as it is scrolled
+ * to the top, until its ring is full.
+ * Search hits from that history are {@link #reveal revealed} in place while still in the ring;
+ * older ones replace the transcript with the history around them.
+ */
+final class RoomTabs extends JTabbedPane {
+    private static final String LOBBY_TITLE = "Lobby";
+    private static final int HISTORY_PAGE = 200;
+
+    private static final class Room {
+        final String channel;
+        final TranscriptView view;
+        int unread;
+        Journal journal;
+        boolean opening;
+        long cursor;
+        boolean historyDone;
+
+        Room(String channel, TranscriptView view) {
+            this.channel = channel;
+            this.view = view;
+        }
+    }
+
+    private final int roomCapacity;
+    private final int rows;
+    private final int columns;
+    private final Map<String, Room> rooms = new HashMap<>();
+    private final Map<TranscriptView, Room> byView = new HashMap<>();
+    private Journals journals;
+
+    RoomTabs(int lobbyCapacity, int roomCapacity, int rows, int columns) {
+        this.roomCapacity = roomCapacity;
+        this.rows = rows;
+        this.columns = columns;
+        add(ChatMessage.LOBBY, LOBBY_TITLE, lobbyCapacity);
+        addChangeListener(_ -> {
+            Room r = selected();
+            if (r != null && r.unread > 0) {
+                r.unread = 0;
+                retitle(r);
+            }
+        });
+    }
+
+    /** Shows saved history from {@code journals} in every room, now and as rooms open. */
+    void attach(Journals journals) {
+        this.journals = journals;
+        for (Room r : rooms.values()) {
+            r.journal = null;
+            r.opening = false;
+            r.historyDone = false;
+            loadOlder(r);
+        }
+    }
+
+    /** Appends each message to its room's transcript, opening tabs as needed. */
+    void appendAll(List<ChatMessage> batch) {
+        Room current = selected();
+        int n = batch.size();
+        // Runs of one room go in as one batch, so a burst in a single room is still one model event.
+        for (int i = 0; i < n; ) {
+            String channel = batch.get(i).channel();
+            int j = i + 1;
+            while (j < n && batch.get(j).channel().equals(channel)) j++;
+            Room r = open(channel);
+            r.view.appendAll(batch.subList(i, j));
+            if (r != current) {
+                int before = r.unread;
+                for (int k = i; k < j; k++) {
+                    if (batch.get(k).type() == MessageType.CHAT) r.unread++;
+                }
+                if (r.unread != before) retitle(r);
+            }
+            i = j;
+        }
+    }
+
+    /** Journal of the tab showing, or null without journals or before it is open. */
+    Journal selectedJournal() {
+        Room r = selected();
+        return journals == null || r == null ? null : r.journal;
+    }
+
+    /** Selects the hit's room and scrolls to it, first loading the history around it if it has been evicted. */
+    void reveal(Journal.Hit hit) {
+        Room r = open(hit.message().channel());
+        setSelectedComponent(r.view);
+        Journal j = r.journal;
+        if (r.view.reveal(hit.message()) || j == null) return;
+        int half = Math.max(1, Math.min(HISTORY_PAGE, r.view.capacity() / 4));
+        try {
+            Journal.Page before = j.readBefore(hit.cursor(), half);
+            Journal.Page after = j.readAfter(hit.cursor(), half);
+            List<ChatMessage> rows = new ArrayList<>(before.messages());
+            rows.addAll(after.messages());
+            // Live lines carry on below; say so when history between here and there is left out.
+            if (after.cursor() != j.end()) rows.add(ChatMessage.notice("Later history skipped; scroll on for new messages."));
+            r.cursor = before.cursor();
+            r.historyDone = false;
+            r.view.replaceAll(rows, before.messages().size());
+        } catch (IOException e) {
+            r.historyDone = true;
+        }
+    }
+
+    /** Channel of the tab showing, {@link ChatMessage#LOBBY} for the lobby. */
+    String selectedChannel() {
+        Room r = selected();
+        return r == null ? ChatMessage.LOBBY : r.channel;
+    }
+
+    /** Rooms with a tab, in tab order, without the lobby. */
+    List<String> roomChannels() {
+        List<String> out = new ArrayList<>();
+        for (int i = 1; i < getTabCount(); i++) out.add(byView.get((TranscriptView) getComponentAt(i)).channel);
+        return out;
+    }
+
+    void select(String channel) {
+        setSelectedComponent(open(channel).view);
+    }
+
+    void close(String channel) {
+        if (channel.isEmpty()) return;
+        Room r = rooms.remove(channel);
+        if (r == null) return;
+        byView.remove(r.view);
+        remove(r.view);
+    }
+
+    private Room open(String channel) {
+        Room r = rooms.get(channel);
+        return r != null ? r : add(channel, channel, roomCapacity);
+    }
+
+    private Room add(String channel, String title, int capacity) {
+        Room r = new Room(channel, new TranscriptView(capacity, rows, columns));
+        rooms.put(channel, r);
+        byView.put(r.view, r);
+        addTab(title, r.view);
+        r.view.onScrolledToTop(() -> loadOlder(r));
+        loadOlder(r);
+        return r;
+    }
+
+    private void loadOlder(Room r) {
+        if (journals == null || r.historyDone) return;
+        if (r.journal == null) {
+            openJournal(r);
+            return;
+        }
+        int max = Math.min(HISTORY_PAGE, r.view.room());
+        try {
+            Journal.Page page = max == 0 ? null : r.journal.readBefore(r.cursor, max);
+            if (page == null || page.messages().isEmpty()) {
+                r.historyDone = true;
+                return;
+            }
+            r.cursor = page.cursor();
+            r.view.prependAll(page.messages());
+        } catch (IOException e) {
+            r.historyDone = true;
+        }
+    }
+
+    // Opening maps files, so it happens on the journal writer; the first page loads when it is done.
+    private void openJournal(Room r) {
+        if (r.opening) return;
+        r.opening = true;
+        Journals from = journals;
+        from.open(r.channel).whenComplete((j, err) -> SwingUtilities.invokeLater(() -> {
+            // Reattached, or the tab closed, in the meantime.
+            if (journals != from || rooms.get(r.channel) != r || !r.opening) return;
+            r.opening = false;
+            if (err != null) {
+                r.historyDone = true;
+                return;
+            }
+            r.journal = j;
+            // History is what the journal held when opened; anything later is already on screen.
+            r.cursor = j.start();
+            loadOlder(r);
+        }));
+    }
+
+    private Room selected() {
+        return byView.get((TranscriptView) getSelectedComponent());
+    }
+
+    private void retitle(Room r) {
+        int i = indexOfComponent(r.view);
+        if (i < 0) return;
+        String title = r.channel.isEmpty() ? LOBBY_TITLE : r.channel;
+        setTitleAt(i, r.unread == 0 ? title : title + " (" + r.unread + ")");
+    }
+}
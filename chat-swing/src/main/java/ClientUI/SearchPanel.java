@@ -0,0 +1,94 @@
+package ClientUI;
+
+import Client.Journal;
+import Client.LineComposer;
+import Client.TimestampCache;
+import Protocol.ChatMessage;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Search box and results for the saved history of the room showing. Results are newest first in
+ * a fixed-row-height list; selecting one reveals it in its room. Words match as prefixes and
+ * {@code from:nick} keeps one sender's lines. EDT only.
+ */
+final class SearchPanel extends JPanel {
+    private static final int MAX_RESULTS = 500;
+
+    private final RoomTabs rooms;
+    private final JTextField query = new JTextField(20);
+    private final JLabel summary = new JLabel(" ");
+    private final DefaultListModel<Journal.Hit> hits = new DefaultListModel<>();
+    private final JList<Journal.Hit> results = new JList<>(hits);
+
+    SearchPanel(RoomTabs rooms, int rows, int columns) {
+        super(new BorderLayout(4, 4));
+        this.rooms = rooms;
+        LineComposer composer = new LineComposer(TimestampCache.localizedMedium());
+        results.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean selected, boolean focused) {
+                String text = composer.compose(((Journal.Hit) value).message());
+                super.getListCellRendererComponent(list, text, index, selected, focused);
+                setToolTipText(text);
+                return this;
+            }
+        });
+        results.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        FontMetrics fm = results.getFontMetrics(results.getFont());
+        results.setFixedCellHeight(fm.getHeight() + 2);
+        results.setFixedCellWidth(fm.charWidth('m') * columns);
+        results.setVisibleRowCount(rows);
+        ToolTipManager.sharedInstance().registerComponent(results);
+        results.addListSelectionListener(e -> {
+            Journal.Hit hit = results.getSelectedValue();
+            if (!e.getValueIsAdjusting() && hit != null) rooms.reveal(hit);
+        });
+        query.addActionListener(_ -> run());
+        query.setToolTipText("Words match as prefixes; from:nick keeps one sender's lines.");
+
+        JPanel top = new JPanel(new BorderLayout(4, 4));
+        top.add(new JLabel("Search:"), BorderLayout.WEST);
+        top.add(query, BorderLayout.CENTER);
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(results), BorderLayout.CENTER);
+        add(summary, BorderLayout.SOUTH);
+    }
+
+    void focusQuery() {
+        query.requestFocusInWindow();
+        query.selectAll();
+    }
+
+    private void run() {
+        hits.clear();
+        String text = query.getText().strip();
+        if (text.isEmpty()) {
+            summary.setText(" ");
+            return;
+        }
+        try {
+            Journal journal = rooms.selectedJournal();
+            if (journal == null) {
+                summary.setText("No saved history to search yet.");
+                return;
+            }
+            long startNanos = System.nanoTime();
+            List<Journal.Hit> found = journal.search(text, MAX_RESULTS);
+            long micros = (System.nanoTime() - startNanos) / 1000;
+            hits.addAll(found);
+            String room = rooms.selectedChannel();
+            summary.setText(String.format(Locale.ROOT, "%s%d in %s in %.1f ms%s",
+                    found.size() == MAX_RESULTS ? "Newest " : "", found.size(),
+                    room.equals(ChatMessage.LOBBY) ? "the lobby" : room, micros / 1000.0,
+                    journal.indexed() ? "" : " (still indexing)"));
+        } catch (IOException e) {
+            summary.setText("Search failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ClientUI;
+
+import Client.MessageRing;
+import Protocol.ChatMessage;
+
+import javax.swing.*;
+import java.util.List;
+
+/** List model over a {@link MessageRing}; one add/remove event pair per batch. EDT only. */
+final class TranscriptModel extends AbstractListModel<ChatMessage> {
+    private final MessageRing ring;
+
+    TranscriptModel(int capacity) {
+        ring = new MessageRing(capacity);
+    }
+
+    @Override
+    public int getSize() {
+        return ring.size();
+    }
+
+    @Override
+    public ChatMessage getElementAt(int index) {
+        return ring.get(index);
+    }
+
+    void addAll(List<ChatMessage> batch) {
+        if (batch.isEmpty()) return;
+        int before = ring.size();
+        int evicted = 0;
+        for (ChatMessage m : batch) {
+            if (ring.add(m)) evicted++;
+        }
+        int removedOld = Math.min(evicted, before);
+        int keptOld = before - removedOld;
+        if (removedOld > 0) fireIntervalRemoved(this, 0, removedOld - 1);
+        if (ring.size() > keptOld) fireIntervalAdded(this, keptOld, ring.size() - 1);
+    }
+
+    /** Replaces every row with {@code rows}, oldest first; as many of the newest as fit. */
+    void replaceAll(List<ChatMessage> rows) {
+        int before = ring.size();
+        ring.clear();
+        if (before > 0) fireIntervalRemoved(this, 0, before - 1);
+        addAll(rows);
+    }
+
+    /** Row of the newest message that reads the same as {@code m}, or -1. */
+    int lastIndexOf(ChatMessage m) {
+        for (int i = ring.size() - 1; i >= 0; i--) {
+            ChatMessage r = ring.get(i);
+            // The journal does not keep sequence numbers, so records never equal what arrived.
+            if (r.timestamp() == m.timestamp() && r.type() == m.type() && r.from().equals(m.from())
+                    && r.body().equals(m.body())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int capacity() {
+        return ring.capacity();
+    }
+
+    /** Rows that can still be prepended without evicting anything. */
+    int room() {
+        return ring.capacity() - ring.size();
+    }
+
+    /** Inserts {@code older}, oldest first, ahead of every row; as many of the newest as fit. */
+    int prependAll(List<ChatMessage> older) {
+        int n = 0;
+        for (int i = older.size() - 1; i >= 0 && ring.addFirst(older.get(i)); i--) n++;
+        if (n > 0) fireIntervalAdded(this, 0, n - 1);
+        return n;
+    }
+}
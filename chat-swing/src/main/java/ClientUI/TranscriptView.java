@@ -0,0 +1,133 @@
+package ClientUI;
+
+import Client.LineComposer;
+import Client.TimestampCache;
+import Protocol.ChatMessage;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Chat transcript as a fixed-row-height {@link JList}, so Swing only measures and paints the
+ * visible rows no matter how many messages the ring holds. Long lines are clipped and shown in
+ * full as a tooltip. Follows new messages only while scrolled to the bottom. Scrolling to the
+ * top asks for older history, which is prepended without moving what is on screen.
+ * Search results are brought into view with {@link #reveal} or, once evicted, {@link #replaceAll}.
+ */
+final class TranscriptView extends JScrollPane {
+    private final TranscriptModel model;
+    private final JList<ChatMessage> list;
+    private boolean scrollPending;
+    private Runnable onTop;
+    private boolean shiftPending;
+
+    TranscriptView(int capacity, int rows, int columns) {
+        model = new TranscriptModel(capacity);
+        list = new JList<>(model) {
+            @Override
+            public boolean getScrollableTracksViewportWidth() {
+                return true;
+            }
+        };
+        list.setCellRenderer(new Renderer());
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        FontMetrics fm = list.getFontMetrics(list.getFont());
+        list.setFixedCellHeight(fm.getHeight() + 2);
+        list.setFixedCellWidth(fm.charWidth('m') * columns);
+        list.setVisibleRowCount(rows);
+        ToolTipManager.sharedInstance().registerComponent(list);
+        setViewportView(list);
+        setHorizontalScrollBarPolicy(HORIZONTAL_SCROLLBAR_NEVER);
+        getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (onTop != null && !shiftPending && e.getValue() == 0 && !e.getValueIsAdjusting()) onTop.run();
+        });
+    }
+
+    /** Called on the EDT whenever the view is scrolled to the very top. */
+    void onScrolledToTop(Runnable onTop) {
+        this.onTop = onTop;
+    }
+
+    int capacity() {
+        return model.capacity();
+    }
+
+    int room() {
+        return model.room();
+    }
+
+    /**
+     * Inserts older rows above the current ones, keeping the rows on screen where they are, or
+     * still at the bottom if that is where the view was.
+     */
+    int prependAll(List<ChatMessage> older) {
+        JScrollBar bar = getVerticalScrollBar();
+        boolean follow = isAtBottom();
+        int value = bar.getValue();
+        int n = model.prependAll(older);
+        if (n > 0) {
+            shiftPending = true;
+            // Once the list has grown; scrolling now would be clamped to the old height.
+            SwingUtilities.invokeLater(() -> {
+                shiftPending = false;
+                if (follow) list.ensureIndexIsVisible(model.getSize() - 1);
+                else bar.setValue(value + n * list.getFixedCellHeight());
+            });
+        }
+        return n;
+    }
+
+    /** Selects the newest row that reads the same as {@code m} and scrolls to it; false if none does. */
+    boolean reveal(ChatMessage m) {
+        int i = model.lastIndexOf(m);
+        if (i < 0) return false;
+        list.setSelectedIndex(i);
+        list.ensureIndexIsVisible(i);
+        return true;
+    }
+
+    /** Shows {@code rows} instead of the current ones, scrolled to row {@code focus} and selected. */
+    void replaceAll(List<ChatMessage> rows, int focus) {
+        model.replaceAll(rows);
+        shiftPending = true;
+        SwingUtilities.invokeLater(() -> {
+            shiftPending = false;
+            if (focus < 0 || focus >= model.getSize()) return;
+            list.setSelectedIndex(focus);
+            list.ensureIndexIsVisible(focus);
+        });
+    }
+
+    void appendAll(List<ChatMessage> batch) {
+        boolean follow = isAtBottom();
+        model.addAll(batch);
+        if (follow && !scrollPending) {
+            scrollPending = true;
+            // Let the list revalidate to its new height before scrolling to the end.
+            SwingUtilities.invokeLater(() -> {
+                scrollPending = false;
+                int last = model.getSize() - 1;
+                if (last >= 0) list.ensureIndexIsVisible(last);
+            });
+        }
+    }
+
+    private boolean isAtBottom() {
+        JScrollBar bar = getVerticalScrollBar();
+        return bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - list.getFixedCellHeight();
+    }
+
+    private static final class Renderer extends DefaultListCellRenderer {
+        private final LineComposer composer = new LineComposer(TimestampCache.localizedMedium());
+
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean selected, boolean focused) {
+            String text = composer.compose((ChatMessage) value);
+            super.getListCellRendererComponent(list, text, index, selected, focused);
+            setToolTipText(text);
+            return this;
+        }
+    }
+}
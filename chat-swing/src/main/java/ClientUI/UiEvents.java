@@ -0,0 +1,60 @@
+package ClientUI;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight-recorder events for the Swing client, alongside the runtime's {@code Client.ChatEvents}
+ * in the {@code Chat} category. Callers check {@link Event#shouldCommit()} before filling in fields.
+ */
+final class UiEvents {
+    private UiEvents() {
+    }
+
+    @Name("chat.RenderCommit")
+    @Label("Chat Render Commit")
+    @Category({"Chat", "UI"})
+    @Description("One batch of messages handed to the transcripts on the EDT.")
+    @StackTrace(false)
+    static final class RenderCommit extends Event {
+        @Label("Messages")
+        int messages;
+        @Label("Trimmed")
+        @Description("Messages dropped from the backlog because the EDT fell behind")
+        int trimmed;
+        @Label("Lateness")
+        @Timespan(Timespan.NANOSECONDS)
+        long late;
+    }
+
+    @Name("chat.EdtStall")
+    @Label("Chat EDT Stall")
+    @Category({"Chat", "UI"})
+    @Description("A watchdog probe the EDT took longer than the stall threshold to run, from posting to running.")
+    @StackTrace(false)
+    static final class EdtStall extends Event {
+        @Label("EDT Stack")
+        @Description("Where the EDT was when the stall was first noticed")
+        String stack;
+    }
+
+    @Name("chat.SendRejected")
+    @Label("Chat Send Rejected")
+    @Category({"Chat", "UI"})
+    @Description("A line typed by the user that the full send queue refused.")
+    @StackTrace(false)
+    static final class SendRejected extends Event {
+        @Label("Channel")
+        String channel;
+        @Label("Queued")
+        @Description("Lines waiting in the send queue at the time")
+        int pending;
+        @Label("Line Length")
+        int length;
+    }
+}
@@ -0,0 +1,6 @@
+/** The Swing client, built on chat.core only. */
+module chat.swing {
+    requires chat.core;
+    requires java.desktop;
+    requires jdk.jfr;
+}